@@ -0,0 +1,64 @@
+package ch.bbcag.ebai.benchmarks;
+
+import ch.bbcag.ebai.controllers.AdvertController;
+import ch.bbcag.ebai.models.AdvertSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdvertSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int adverts;
+
+    private ConfigurableApplicationContext context;
+
+    private AdvertController advertController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedApplication.start();
+        EmbeddedApplication.seed(context, 100, 1000, adverts, adverts);
+        advertController = context.getBean(AdvertController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // the most frequent noun of the generated names
+    @Benchmark
+    public Iterable<AdvertSummary> commonWord() {
+        return advertController.findByName("velo");
+    }
+
+    @Benchmark
+    public Iterable<AdvertSummary> twoWords() {
+        return advertController.findByName("kamera rot");
+    }
+
+    @Benchmark
+    public Iterable<AdvertSummary> noMatch() {
+        return advertController.findByName("fahrrad");
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return advertController.suggest("ka", null);
+    }
+}
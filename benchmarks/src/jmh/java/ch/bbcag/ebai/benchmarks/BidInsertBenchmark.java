@@ -0,0 +1,72 @@
+package ch.bbcag.ebai.benchmarks;
+
+import ch.bbcag.ebai.controllers.BidController;
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// all threads bid on a few adverts, so most of them wait for the same advert lock and batch
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class BidInsertBenchmark {
+
+    @Param({"1", "16"})
+    private int adverts;
+
+    private ConfigurableApplicationContext context;
+
+    private BidController bidController;
+
+    private final AtomicInteger nextValue = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedApplication.start();
+        EmbeddedApplication.seed(context, 10, 100, adverts, 0);
+        bidController = context.getBean(BidController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean insert() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Advert advert = new Advert();
+        advert.setId(1 + random.nextInt(adverts));
+        User user = new User();
+        user.setId(1 + random.nextInt(100));
+        Bid bid = new Bid();
+        bid.setValue(nextValue.incrementAndGet());
+        bid.setAdvert(advert);
+        bid.setUser(user);
+        try {
+            bidController.insert(bid);
+            return true;
+        } catch (ResponseStatusException e) {
+            // overtaken by a higher bid on the same advert
+            return false;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ch.bbcag.ebai.benchmarks;
+
+import ch.bbcag.ebai.EBaiApplication;
+import ch.bbcag.ebai.services.AdvertSearchIndex;
+import ch.bbcag.ebai.services.HighestBidIndex;
+import ch.bbcag.ebai.services.NameSuggestService;
+import ch.bbcag.ebai.services.PlzIndex;
+import ch.bbcag.ebai.services.RegionIndex;
+import ch.bbcag.ebai.utils.SyntheticDataGenerator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+// boots the application against a private in-memory h2 database in MySQL mode, without a web server
+public final class EmbeddedApplication {
+
+    private EmbeddedApplication() {
+    }
+
+    // passed as arguments, so they win over application.properties
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(EBaiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+    }
+
+    // seeded with a fixed seed, so every run of a benchmark works on the same rows
+    public static void seed(ConfigurableApplicationContext context, int locations, int users, int adverts, int bids) {
+        new SyntheticDataGenerator(42)
+                .locations(locations)
+                .users(users)
+                .adverts(adverts)
+                .bids(bids)
+                .generate(context.getBean(JdbcTemplate.class));
+        reloadIndexes(context);
+    }
+
+    // the in-memory indexes were loaded from the empty database at startup
+    private static void reloadIndexes(ConfigurableApplicationContext context) {
+        context.getBean(HighestBidIndex.class).load();
+        context.getBean(AdvertSearchIndex.class).load();
+        context.getBean(NameSuggestService.class).load();
+        context.getBean(PlzIndex.class).load();
+        context.getBean(RegionIndex.class).load();
+    }
+}
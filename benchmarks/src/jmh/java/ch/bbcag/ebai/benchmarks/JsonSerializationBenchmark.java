@@ -0,0 +1,90 @@
+package ch.bbcag.ebai.benchmarks;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.AdvertSummary;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.User;
+import ch.bbcag.ebai.utils.SyntheticDataGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int bidsPerAdvert;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private Advert advert;
+
+    private User user;
+
+    private List<Bid> bids;
+
+    private List<AdvertSummary> summaries;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setId(1);
+        user.setName("User 1");
+        bids = new ArrayList<>();
+        summaries = new ArrayList<>();
+        SyntheticDataGenerator names = new SyntheticDataGenerator(42);
+        for (int a = 1; a <= 10; a++) {
+            Advert userAdvert = new Advert();
+            userAdvert.setId(a);
+            userAdvert.setName(names.advertName());
+            userAdvert.setUser(user);
+            for (int b = 1; b <= bidsPerAdvert; b++) {
+                Bid bid = new Bid();
+                bid.setId(a * bidsPerAdvert + b);
+                bid.setValue(b * 10);
+                bid.setAdvert(userAdvert);
+                bid.setUser(user);
+                userAdvert.getBids().add(bid);
+                user.getBids().add(bid);
+                bids.add(bid);
+            }
+            user.getAdverts().add(userAdvert);
+            summaries.add(new AdvertSummary(a, userAdvert.getName(), 1, bidsPerAdvert, bidsPerAdvert * 10));
+        }
+        advert = user.getAdverts().iterator().next();
+    }
+
+    @Benchmark
+    public byte[] advertWithBids() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(advert);
+    }
+
+    @Benchmark
+    public byte[] userWithAdvertsAndBids() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] bidList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bids);
+    }
+
+    @Benchmark
+    public byte[] advertSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+}
@@ -0,0 +1,74 @@
+package ch.bbcag.ebai.benchmarks;
+
+import ch.bbcag.ebai.controllers.AdvertController;
+import ch.bbcag.ebai.controllers.BidController;
+import ch.bbcag.ebai.controllers.UserController;
+import ch.bbcag.ebai.models.AdvertSummary;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.KeysetPage;
+import ch.bbcag.ebai.models.UserSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// full listings grow with the data set, keyset pages should not
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int adverts;
+
+    private ConfigurableApplicationContext context;
+
+    private AdvertController advertController;
+
+    private UserController userController;
+
+    private BidController bidController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedApplication.start();
+        EmbeddedApplication.seed(context, 100, adverts / 10, adverts, adverts * 5);
+        advertController = context.getBean(AdvertController.class);
+        userController = context.getBean(UserController.class);
+        bidController = context.getBean(BidController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Iterable<AdvertSummary> allAdverts() {
+        return advertController.findByName(null);
+    }
+
+    @Benchmark
+    public Iterable<UserSummary> allUsers() {
+        return userController.findByName(null);
+    }
+
+    @Benchmark
+    public Iterable<Bid> allBids() {
+        return bidController.findByValue(null);
+    }
+
+    @Benchmark
+    public KeysetPage<AdvertSummary> advertPageInTheMiddle() {
+        return advertController.findPageByName(null, 50, adverts / 2);
+    }
+}
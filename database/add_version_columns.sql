@@ -0,0 +1,9 @@
+-- Adds the version columns used for ETags and conditional updates to a database created with an older db_script.sql
+-- Run it once; new databases get the columns from db_script.sql
+
+USE `mydb` ;
+
+ALTER TABLE `mydb`.`location` ADD COLUMN `version` INT NOT NULL DEFAULT 0;
+ALTER TABLE `mydb`.`user` ADD COLUMN `version` INT NOT NULL DEFAULT 0;
+ALTER TABLE `mydb`.`advert` ADD COLUMN `version` INT NOT NULL DEFAULT 0;
+ALTER TABLE `mydb`.`bid` ADD COLUMN `version` INT NOT NULL DEFAULT 0;
@@ -26,6 +26,7 @@ CREATE TABLE IF NOT EXISTS `mydb`.`location` (
   `id` INT NOT NULL AUTO_INCREMENT,
   `location` VARCHAR(45) NOT NULL,
   `plz` INT NULL,
+  `version` INT NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`))
 ENGINE = InnoDB;
 
@@ -39,6 +40,7 @@ CREATE TABLE IF NOT EXISTS `mydb`.`user` (
   `id` INT NOT NULL AUTO_INCREMENT,
   `name` VARCHAR(45) NOT NULL,
   `location_id` INT NOT NULL,
+  `version` INT NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`, `location_id`),
   INDEX `fk_User_Location_idx` (`location_id` ASC) VISIBLE,
   CONSTRAINT `fk_User_Location`
@@ -58,6 +60,7 @@ CREATE TABLE IF NOT EXISTS `mydb`.`advert` (
   `id` INT NOT NULL AUTO_INCREMENT,
   `name` VARCHAR(45) NOT NULL,
   `user_id` INT NOT NULL,
+  `version` INT NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`, `user_id`),
   INDEX `fk_Advert_User1_idx` (`user_id` ASC) VISIBLE,
   CONSTRAINT `fk_Advert_User1`
@@ -78,6 +81,7 @@ CREATE TABLE IF NOT EXISTS `mydb`.`bid` (
   `value` INT NOT NULL,
   `advert_id` INT NOT NULL,
   `user_id` INT NOT NULL,
+  `version` INT NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`, `advert_id`, `user_id`),
   INDEX `fk_bid_advert1_idx` (`advert_id` ASC) VISIBLE,
   INDEX `fk_bid_user1_idx` (`user_id` ASC) VISIBLE,
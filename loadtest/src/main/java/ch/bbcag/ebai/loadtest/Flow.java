@@ -0,0 +1,31 @@
+package ch.bbcag.ebai.loadtest;
+
+import java.util.Arrays;
+
+public enum Flow {
+
+    CREATE_LOCATION("create-location"),
+    CREATE_USER("create-user"),
+    CREATE_ADVERT("create-advert"),
+    BID("bid"),
+    SEARCH_ADVERT("search-advert"),
+    SEARCH_USER("search-user"),
+    SEARCH_LOCATION("search-location");
+
+    private final String label;
+
+    Flow(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public static Flow of(String label) {
+        return Arrays.stream(values())
+                .filter(flow -> flow.label.equals(label))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown flow " + label + ", expected one of " + Arrays.toString(Arrays.stream(values()).map(Flow::label).toArray())));
+    }
+}
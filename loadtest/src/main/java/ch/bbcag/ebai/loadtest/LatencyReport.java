@@ -0,0 +1,107 @@
+package ch.bbcag.ebai.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// latencies in microseconds per flow; recording is lock-free, reading is done by the single reporting thread
+public class LatencyReport {
+
+    private static final String ROW = "%-16s %9s %9s %9s %9s %10s %10s %10s %10s %10s %10s%n";
+
+    private final Map<Flow, FlowStatistics> statistics = new EnumMap<>(Flow.class);
+
+    public LatencyReport() {
+        for (Flow flow : Flow.values()) {
+            statistics.put(flow, new FlowStatistics());
+        }
+    }
+
+    // 2xx are ok, other 4xx are rejections the service is expected to give (e.g. a bid that was overtaken)
+    public void record(Flow flow, long latencyNanos, int status) {
+        FlowStatistics flowStatistics = statistics.get(flow);
+        flowStatistics.recorder.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (status >= 200 && status < 300) {
+            flowStatistics.ok.increment();
+        } else if (status >= 400 && status < 500) {
+            flowStatistics.rejected.increment();
+        } else {
+            flowStatistics.errors.increment();
+        }
+    }
+
+    public void recordFailure(Flow flow, long latencyNanos) {
+        record(flow, latencyNanos, 0);
+    }
+
+    // drops everything recorded so far, used after the warmup
+    public void reset() {
+        for (FlowStatistics flowStatistics : statistics.values()) {
+            flowStatistics.recorder.reset();
+            flowStatistics.total.reset();
+            flowStatistics.ok.reset();
+            flowStatistics.rejected.reset();
+            flowStatistics.errors.reset();
+        }
+    }
+
+    public void printInterval(PrintStream out, long elapsedSeconds) {
+        Histogram interval = new Histogram(3);
+        for (FlowStatistics flowStatistics : statistics.values()) {
+            Histogram flowInterval = flowStatistics.recorder.getIntervalHistogram();
+            flowStatistics.total.add(flowInterval);
+            interval.add(flowInterval);
+        }
+        out.printf("%5ds %8d requests  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms%n", elapsedSeconds, interval.getTotalCount(),
+                millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)), millis(interval.getMaxValue()));
+    }
+
+    public void printSummary(PrintStream out, double seconds, double targetRate) {
+        Histogram all = new Histogram(3);
+        out.println();
+        out.printf(ROW, "flow", "requests", "ok", "rejected", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Flow, FlowStatistics> entry : statistics.entrySet()) {
+            FlowStatistics flowStatistics = entry.getValue();
+            flowStatistics.total.add(flowStatistics.recorder.getIntervalHistogram());
+            if (flowStatistics.total.getTotalCount() > 0) {
+                all.add(flowStatistics.total);
+                printRow(out, entry.getKey().label(), flowStatistics.total, flowStatistics.ok.sum(), flowStatistics.rejected.sum(), flowStatistics.errors.sum(), seconds);
+            }
+        }
+        long ok = statistics.values().stream().mapToLong(flowStatistics -> flowStatistics.ok.sum()).sum();
+        long rejected = statistics.values().stream().mapToLong(flowStatistics -> flowStatistics.rejected.sum()).sum();
+        long errors = statistics.values().stream().mapToLong(flowStatistics -> flowStatistics.errors.sum()).sum();
+        printRow(out, "total", all, ok, rejected, errors, seconds);
+        out.printf("%ntarget rate %.1f req/s, achieved %.1f req/s%n", targetRate, all.getTotalCount() / seconds);
+    }
+
+    private static void printRow(PrintStream out, String label, Histogram histogram, long ok, long rejected, long errors, double seconds) {
+        out.printf(ROW, label, histogram.getTotalCount(), ok, rejected, errors,
+                String.format("%.1f", histogram.getTotalCount() / seconds),
+                format(histogram.getValueAtPercentile(50)), format(histogram.getValueAtPercentile(90)),
+                format(histogram.getValueAtPercentile(99)), format(histogram.getValueAtPercentile(99.9)),
+                format(histogram.getMaxValue()));
+    }
+
+    private static String format(long micros) {
+        return String.format("%.2f", millis(micros));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static class FlowStatistics {
+
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
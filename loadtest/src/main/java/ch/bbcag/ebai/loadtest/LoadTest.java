@@ -0,0 +1,198 @@
+package ch.bbcag.ebai.loadtest;
+
+import ch.bbcag.ebai.EBaiApplication;
+import ch.bbcag.ebai.services.AdvertSearchIndex;
+import ch.bbcag.ebai.services.HighestBidIndex;
+import ch.bbcag.ebai.services.NameSuggestService;
+import ch.bbcag.ebai.services.PlzIndex;
+import ch.bbcag.ebai.services.RegionIndex;
+import ch.bbcag.ebai.utils.SyntheticDataGenerator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// open-model load generator: requests are started on a poisson schedule whether or not earlier ones have
+// finished, and latency is measured from the scheduled start so a stalled server is not hidden
+public class LoadTest {
+
+    private static final String DEFAULT_MIX = "create-location=1,create-user=2,create-advert=5,bid=30,search-advert=40,search-user=10,search-location=12";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "60"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "10"));
+        long reportSeconds = Long.parseLong(options.getOrDefault("report-interval", "5"));
+        Mix mix = Mix.parse(options.getOrDefault("mix", DEFAULT_MIX));
+        SamplePayloads payloads = new SamplePayloads(Path.of(options.getOrDefault("payloads", "jsons.txt")));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        double bidSkew = Double.parseDouble(options.getOrDefault("bid-skew", "1.0"));
+        int locations = Integer.parseInt(options.getOrDefault("locations", "100"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int adverts = Integer.parseInt(options.getOrDefault("adverts", "10000"));
+        int bids = Integer.parseInt(options.getOrDefault("bids", "100000"));
+        Random random = new Random(seed);
+
+        ConfigurableApplicationContext context = options.containsKey("target") ? null : startEmbedded();
+        try {
+            URI baseUri = URI.create(context == null ? options.get("target") : "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Workload workload = new Workload(baseUri, payloads, seed, bidSkew);
+
+            if (context == null) {
+                seed(client, workload, random, Flow.CREATE_LOCATION, locations);
+                seed(client, workload, random, Flow.CREATE_USER, users);
+                seed(client, workload, random, Flow.CREATE_ADVERT, adverts);
+            } else {
+                generate(context, seed, bidSkew, locations, users, adverts, bids);
+                workload.generated(locations, users, adverts);
+            }
+
+            System.out.printf("driving %s at %.1f req/s for %ds after %ds warmup%n", baseUri, rate, durationSeconds, warmupSeconds);
+            run(client, workload, mix, random, rate, warmupSeconds, durationSeconds, reportSeconds);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static void run(HttpClient client, Workload workload, Mix mix, Random random, double rate,
+                            long warmupSeconds, long durationSeconds, long reportSeconds) throws InterruptedException {
+        LatencyReport report = new LatencyReport();
+        AtomicInteger inFlight = new AtomicInteger();
+        long totalNanos = TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+        Thread dispatcher = new Thread(() -> dispatch(client, workload, mix, random, rate, totalNanos, report, inFlight), "load-dispatcher");
+
+        long start = System.nanoTime();
+        long measuredStart = start;
+        boolean warm = warmupSeconds == 0;
+        dispatcher.start();
+        while (dispatcher.isAlive()) {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(reportSeconds));
+            long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+            if (!warm && elapsedSeconds >= warmupSeconds) {
+                report.reset();
+                measuredStart = System.nanoTime();
+                warm = true;
+                System.out.println("warmup done");
+            } else {
+                report.printInterval(System.out, elapsedSeconds);
+            }
+        }
+        // requests still running belong to the measured period
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        report.printSummary(System.out, (System.nanoTime() - measuredStart) / 1e9, rate);
+    }
+
+    private static void dispatch(HttpClient client, Workload workload, Mix mix, Random random, double rate,
+                                 long totalNanos, LatencyReport report, AtomicInteger inFlight) {
+        double meanIntervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long scheduled = start;
+        while (scheduled - start < totalNanos) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Flow flow = mix.next(random);
+            long intendedStart = scheduled;
+            inFlight.incrementAndGet();
+            client.sendAsync(workload.request(flow, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - intendedStart;
+                        if (error != null) {
+                            report.recordFailure(flow, latency);
+                        } else {
+                            report.record(flow, latency, response.statusCode());
+                            workload.completed(flow, response.statusCode());
+                        }
+                        inFlight.decrementAndGet();
+                    });
+            scheduled += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+        }
+    }
+
+    // the embedded database is filled directly, at volumes that would take too long through the api
+    private static void generate(ConfigurableApplicationContext context, long seed, double bidSkew, int locations, int users, int adverts, int bids) {
+        if (locations < 1 || users < 1 || adverts < 1) {
+            throw new IllegalArgumentException("At least one location, user and advert is needed");
+        }
+        long start = System.nanoTime();
+        new SyntheticDataGenerator(seed)
+                .locations(locations)
+                .users(users)
+                .adverts(adverts)
+                .bids(bids)
+                .bidSkew(bidSkew)
+                .generate(context.getBean(JdbcTemplate.class));
+        // the in-memory indexes were loaded from the empty database at startup
+        context.getBean(HighestBidIndex.class).load();
+        context.getBean(AdvertSearchIndex.class).load();
+        context.getBean(NameSuggestService.class).load();
+        context.getBean(PlzIndex.class).load();
+        context.getBean(RegionIndex.class).load();
+        System.out.printf("generated %d locations, %d users, %d adverts and %d bids in %ds%n",
+                locations, users, adverts, bids, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    // against a running server the flows' rows are created through the api, one after the other
+    private static void seed(HttpClient client, Workload workload, Random random, Flow flow, int count) throws IOException, InterruptedException {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one row is needed for " + flow.label());
+        }
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = workload.request(flow, random);
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 201) {
+                throw new IllegalStateException(flow.label() + " answered " + status + " while seeding");
+            }
+            workload.completed(flow, status);
+        }
+    }
+
+    // the same h2 stand-in as the benchmarks, with the web server on a free port
+    private static ConfigurableApplicationContext startEmbedded() {
+        return new SpringApplicationBuilder(EBaiApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+    }
+
+    // --name=value pairs
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options look like --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,45 @@
+package ch.bbcag.ebai.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// picks flows at random in proportion to their weights, e.g. "bid=30,search-advert=40,create-advert=5"
+public class Mix {
+
+    private final List<Flow> flows = new ArrayList<>();
+
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+
+    private int totalWeight;
+
+    public static Mix parse(String text) {
+        Mix mix = new Mix();
+        for (String entry : text.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like flow=weight, got " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.totalWeight += weight;
+                mix.flows.add(Flow.of(parts[0].trim()));
+                mix.cumulativeWeights.add(mix.totalWeight);
+            }
+        }
+        if (mix.totalWeight == 0) {
+            throw new IllegalArgumentException("Mix needs at least one flow with a positive weight");
+        }
+        return mix;
+    }
+
+    public Flow next(Random random) {
+        int point = random.nextInt(totalWeight);
+        for (int i = 0; i < flows.size(); i++) {
+            if (point < cumulativeWeights.get(i)) {
+                return flows.get(i);
+            }
+        }
+        return flows.get(flows.size() - 1);
+    }
+}
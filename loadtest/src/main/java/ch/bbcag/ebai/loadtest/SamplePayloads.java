@@ -0,0 +1,58 @@
+package ch.bbcag.ebai.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// the "Post <resource>:" bodies of jsons.txt, used as templates for the generated requests
+public class SamplePayloads {
+
+    private static final Pattern HEADER = Pattern.compile("Post (\\w+):");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, ObjectNode> templates = new HashMap<>();
+
+    public SamplePayloads(Path file) throws IOException {
+        String resource = null;
+        StringBuilder body = new StringBuilder();
+        for (String line : Files.readAllLines(file)) {
+            Matcher header = HEADER.matcher(line.trim());
+            if (header.matches() || line.startsWith("---")) {
+                add(resource, body);
+                resource = header.matches() ? header.group(1) : null;
+                body.setLength(0);
+            } else {
+                body.append(line).append('\n');
+            }
+        }
+        add(resource, body);
+        for (String required : new String[]{"location", "user", "advert", "bid"}) {
+            if (!templates.containsKey(required)) {
+                throw new IllegalArgumentException(file + " has no sample payload for " + required);
+            }
+        }
+    }
+
+    // a fresh copy that can be filled in
+    public ObjectNode template(String resource) {
+        return templates.get(resource).deepCopy();
+    }
+
+    public String write(ObjectNode payload) throws IOException {
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    private void add(String resource, StringBuilder body) throws IOException {
+        if (resource != null && !body.toString().isBlank()) {
+            templates.put(resource, (ObjectNode) objectMapper.readTree(body.toString()));
+        }
+    }
+}
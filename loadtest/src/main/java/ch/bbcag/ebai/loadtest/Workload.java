@@ -0,0 +1,146 @@
+package ch.bbcag.ebai.loadtest;
+
+import ch.bbcag.ebai.utils.SyntheticDataGenerator;
+import ch.bbcag.ebai.utils.ZipfDistribution;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// turns flows into requests; ids are handed out by the database from 1, so created rows are tracked by counting
+public class Workload {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+
+    private final SamplePayloads payloads;
+
+    // names from the same vocabulary as the generated rows, so searches find something
+    private final SyntheticDataGenerator names;
+
+    private final double bidSkew;
+
+    private final AtomicInteger locations = new AtomicInteger();
+
+    private final AtomicInteger users = new AtomicInteger();
+
+    private final AtomicInteger adverts = new AtomicInteger();
+
+    // starts above every generated bid, so most bids are accepted
+    private final AtomicInteger bidValue = new AtomicInteger(100_000_000);
+
+    private ZipfDistribution hotAdverts;
+
+    public Workload(URI baseUri, SamplePayloads payloads, long seed, double bidSkew) {
+        this.baseUri = baseUri;
+        this.payloads = payloads;
+        this.names = new SyntheticDataGenerator(seed);
+        this.bidSkew = bidSkew;
+    }
+
+    // rows written straight into the database before the run
+    public void generated(int locations, int users, int adverts) {
+        this.locations.addAndGet(locations);
+        this.users.addAndGet(users);
+        this.adverts.addAndGet(adverts);
+    }
+
+    public HttpRequest request(Flow flow, Random random) {
+        return switch (flow) {
+            case CREATE_LOCATION -> post("locations", location(random));
+            case CREATE_USER -> post("users", user(random));
+            case CREATE_ADVERT -> post("adverts", advert(random));
+            case BID -> post("bids", bid(random));
+            case SEARCH_ADVERT -> get("adverts?name=" + encode(names.advertName()));
+            case SEARCH_USER -> get("users?name=" + encode(names.userName()));
+            case SEARCH_LOCATION -> searchLocation(random);
+        };
+    }
+
+    // only rows whose insert has completed may be referenced by later requests
+    public void completed(Flow flow, int status) {
+        if (status != 201) {
+            return;
+        }
+        switch (flow) {
+            case CREATE_LOCATION -> locations.incrementAndGet();
+            case CREATE_USER -> users.incrementAndGet();
+            case CREATE_ADVERT -> adverts.incrementAndGet();
+            default -> {
+            }
+        }
+    }
+
+    private ObjectNode location(Random random) {
+        ObjectNode location = payloads.template("location");
+        location.put("name", location.path("name").asText() + " " + (locations.get() + 1));
+        location.put("plz", 1000 + random.nextInt(9000));
+        return location;
+    }
+
+    private ObjectNode user(Random random) {
+        ObjectNode user = payloads.template("user");
+        user.put("name", names.userName());
+        user.with("location").put("id", pick(locations, random));
+        return user;
+    }
+
+    private ObjectNode advert(Random random) {
+        ObjectNode advert = payloads.template("advert");
+        advert.put("name", names.advertName());
+        advert.with("user").put("id", pick(users, random));
+        return advert;
+    }
+
+    // most bids go to a few hot adverts among the ones that existed when bidding started
+    private ObjectNode bid(Random random) {
+        if (hotAdverts == null) {
+            hotAdverts = new ZipfDistribution(Math.max(1, adverts.get()), bidSkew, random);
+        }
+        ObjectNode bid = payloads.template("bid");
+        bid.put("value", bid.path("value").asInt() + bidValue.incrementAndGet());
+        bid.with("advert").put("id", hotAdverts.sample());
+        bid.with("user").put("id", pick(users, random));
+        return bid;
+    }
+
+    private HttpRequest searchLocation(Random random) {
+        int plzFrom = 1000 + random.nextInt(9000);
+        return get("locations?plzFrom=" + plzFrom + "&plzTo=" + (plzFrom + 99));
+    }
+
+    private static int pick(AtomicInteger count, Random random) {
+        return 1 + random.nextInt(Math.max(1, count.get()));
+    }
+
+    private HttpRequest post(String path, ObjectNode payload) {
+        try {
+            return HttpRequest.newBuilder(baseUri.resolve(path))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(payloads.write(payload)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest get(String pathAndQuery) {
+        return HttpRequest.newBuilder(baseUri.resolve(pathAndQuery))
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package ch.bbcag.ebai.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// useCursorFetch turns a fetch size into a server-side cursor, but Connector/J then also prepares every statement of the
+// connection on the server. So only code inside a cursorFetch scope gets a connection of the cursor pool; the scope has to
+// be opened before the transaction takes its connection.
+public class CursorFetchDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> CURSOR_FETCH = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource defaultPool;
+
+    private final DataSource cursorPool;
+
+    public CursorFetchDataSource(DataSource defaultPool, DataSource cursorPool) {
+        this.defaultPool = defaultPool;
+        this.cursorPool = cursorPool;
+        setTargetDataSources(Map.of(false, defaultPool, true, cursorPool));
+        setDefaultTargetDataSource(defaultPool);
+        afterPropertiesSet();
+    }
+
+    public static Scope cursorFetch() {
+        boolean previous = CURSOR_FETCH.get();
+        CURSOR_FETCH.set(true);
+        return () -> CURSOR_FETCH.set(previous);
+    }
+
+    // other databases have no such option, their urls are left alone
+    public static String withCursorFetch(String url) {
+        if (url == null || !url.startsWith("jdbc:mysql:")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURSOR_FETCH.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            if (cursorPool instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        } finally {
+            if (defaultPool instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,25 @@
+package ch.bbcag.ebai.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+    // replaces the pool of Spring Boot, both pools are built from the spring.datasource properties
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, @Value("${ebai.streaming.cursor-pool-size}") int cursorPoolSize) {
+        HikariDataSource defaultPool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        HikariDataSource cursorPool = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                .url(CursorFetchDataSource.withCursorFetch(properties.determineUrl()))
+                .build();
+        cursorPool.setPoolName("cursor-fetch");
+        cursorPool.setMaximumPoolSize(cursorPoolSize);
+        return new CursorFetchDataSource(defaultPool, cursorPool);
+    }
+}
@@ -0,0 +1,18 @@
+package ch.bbcag.ebai.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+// handler latency (http.server.requests) and repository latency (spring.data.repository.invocations) are recorded by actuator
+@Configuration
+public class MetricsConfig {
+
+    // replaces the converter boot would register otherwise
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new TimedJacksonConverter(objectMapper, meterRegistry);
+    }
+}
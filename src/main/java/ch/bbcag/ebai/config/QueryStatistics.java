@@ -0,0 +1,74 @@
+package ch.bbcag.ebai.config;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// statements executed by the current thread between start and stop, filled in by StatementTimingDataSource
+public class QueryStatistics {
+
+    private static final ThreadLocal<QueryStatistics> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Integer> countsByShape = new HashMap<>();
+
+    private int statementCount;
+
+    private long durationNanos;
+
+    public static QueryStatistics start() {
+        QueryStatistics statistics = new QueryStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    static void record(String sql, long nanos) {
+        QueryStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementCount++;
+            statistics.durationNanos += nanos;
+            statistics.countsByShape.merge(shapeOf(sql), 1, Integer::sum);
+        }
+    }
+
+    public int statementCount() {
+        return statementCount;
+    }
+
+    public long durationNanos() {
+        return durationNanos;
+    }
+
+    // statement shapes seen more than threshold times, the usual sign of an N+1 select
+    public Map<String, Integer> repeatedShapes(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        countsByShape.forEach((shape, count) -> {
+            if (count > threshold) {
+                repeated.put(shape, count);
+            }
+        });
+        return repeated;
+    }
+
+    public String serverTiming(long requestNanos) {
+        return String.format(Locale.ROOT, "db;dur=%.2f;desc=\"%d statements\", app;dur=%.2f",
+                durationNanos / 1_000_000.0, statementCount, requestNanos / 1_000_000.0);
+    }
+
+    // IN lists of any length count as the same statement
+    static String shapeOf(String sql) {
+        if (sql == null) {
+            return "batch";
+        }
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("(?...)");
+    }
+}
@@ -0,0 +1,33 @@
+package ch.bbcag.ebai.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Configuration
+public class QueryStatisticsConfig {
+
+    @Bean
+    public static BeanPostProcessor statementTimingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementTimingDataSource)) {
+                    return new StatementTimingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryStatisticsFilter> queryStatisticsFilter(@Value("${ebai.query-statistics.excluded-paths}") List<String> excludedPaths,
+                                                                               @Value("${ebai.query-statistics.repeat-threshold}") int repeatThreshold) {
+        return new FilterRegistrationBean<>(new QueryStatisticsFilter(excludedPaths, repeatThreshold));
+    }
+}
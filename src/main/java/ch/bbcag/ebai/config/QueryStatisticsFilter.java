@@ -0,0 +1,170 @@
+package ch.bbcag.ebai.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.function.Supplier;
+
+// reports the statements of a request in a Server-Timing header, set right before the container commits the response
+public class QueryStatisticsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryStatisticsFilter.class);
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final List<String> excludedPaths;
+
+    private final int repeatThreshold;
+
+    public QueryStatisticsFilter(List<String> excludedPaths, int repeatThreshold) {
+        this.excludedPaths = excludedPaths;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    // streamed responses commit early and would only report the statements before the first event
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return excludedPaths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        QueryStatistics statistics = QueryStatistics.start();
+        long start = System.nanoTime();
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, () -> statistics.serverTiming(System.nanoTime() - start));
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            timedResponse.writeServerTiming();
+            QueryStatistics.stop();
+            statistics.repeatedShapes(repeatThreshold).forEach((shape, count) ->
+                    log.warn("{} {} executed the same statement {} times: {}", request.getMethod(), request.getRequestURI(), count, shape));
+        }
+    }
+
+    // nothing is buffered here: the bytes go straight to the container and the header is set when its buffer is about to be flushed
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final Supplier<String> serverTiming;
+
+        private boolean written;
+
+        private long bytesWritten;
+
+        private ServletOutputStream outputStream;
+
+        private ServerTimingResponse(HttpServletResponse response, Supplier<String> serverTiming) {
+            super(response);
+            this.serverTiming = serverTiming;
+        }
+
+        private void writeServerTiming() {
+            if (!written && !isCommitted()) {
+                setHeader("Server-Timing", serverTiming.get());
+            }
+            written = true;
+        }
+
+        private void beforeWrite(int length) {
+            if (!written && bytesWritten + length >= getBufferSize()) {
+                writeServerTiming();
+            }
+            bytesWritten += length;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        // characters do not map to a known number of bytes, so the header is set before the first one
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeServerTiming();
+            super.sendRedirect(location);
+        }
+
+        private class CountingOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream delegate;
+
+            private CountingOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                beforeWrite(1);
+                delegate.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                beforeWrite(len);
+                delegate.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writeServerTiming();
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writeServerTiming();
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+        }
+    }
+}
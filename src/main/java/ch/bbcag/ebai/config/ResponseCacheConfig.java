@@ -0,0 +1,23 @@
+package ch.bbcag.ebai.config;
+
+import ch.bbcag.ebai.services.ResponseCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+@Configuration
+public class ResponseCacheConfig {
+
+    // runs outside the query statistics filter, so a hit is answered without passing through it
+    @Bean
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(ResponseCache responseCache,
+                                                                           @Value("${ebai.response-cache.paths}") List<String> cachedPaths) {
+        FilterRegistrationBean<ResponseCacheFilter> registration = new FilterRegistrationBean<>(new ResponseCacheFilter(responseCache, cachedPaths));
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return registration;
+    }
+}
@@ -0,0 +1,96 @@
+package ch.bbcag.ebai.config;
+
+import ch.bbcag.ebai.services.ResponseCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+// answers the cached paths from ResponseCache; a hit is written as stored, without running the controller or jackson
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final ResponseCache responseCache;
+
+    private final List<String> cachedPaths;
+
+    public ResponseCacheFilter(ResponseCache responseCache, List<String> cachedPaths) {
+        this.responseCache = responseCache;
+        this.cachedPaths = cachedPaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+                || cachedPaths.stream().noneMatch(pattern -> pathMatcher.match(pattern, pathOf(request)));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        ResponseCache.Key key = new ResponseCache.Key(pathOf(request), queryOf(request));
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry == null) {
+            long renderedAt = responseCache.generation(key.path());
+            ContentCachingResponseWrapper renderedResponse = new ContentCachingResponseWrapper(response);
+            filterChain.doFilter(request, renderedResponse);
+            if (renderedResponse.getStatus() != HttpStatus.OK.value() || !isJson(renderedResponse.getContentType())) {
+                renderedResponse.copyBodyToResponse();
+                return;
+            }
+            // the rendered body is dropped and written from the entry, so hits and misses get the same headers
+            entry = responseCache.put(key, renderedResponse.getContentType(), renderedResponse.getContentAsByteArray(),
+                    renderedResponse.getHeader(HttpHeaders.ETAG), renderedAt);
+        } else {
+            response.setHeader("Server-Timing", "cache;desc=\"hit\"");
+        }
+        write(request, response, entry);
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, ResponseCache.Entry entry) throws IOException {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (new ServletWebRequest(request, response).checkNotModified(entry.etag())) {
+            return;
+        }
+        byte[] body = entry.body();
+        if (entry.gzipBody() != null && AcceptEncoding.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = entry.gzipBody();
+        }
+        response.setContentType(entry.contentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    // the same parameters in another order are the same response
+    private static String queryOf(HttpServletRequest request) {
+        StringJoiner query = new StringJoiner("&");
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            Arrays.stream(parameter.getValue()).forEach(value -> query.add(parameter.getKey() + "=" + value));
+        }
+        return query.toString();
+    }
+
+    private static boolean isJson(String contentType) {
+        return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+}
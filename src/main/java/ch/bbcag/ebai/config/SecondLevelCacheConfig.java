@@ -0,0 +1,61 @@
+package ch.bbcag.ebai.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// regions of the hibernate second-level cache, the region names are the ones used in the @Cache annotations of the entities
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String LOCATIONS = "locations";
+
+    public static final String LOCATION_USERS = "location-users";
+
+    public static final String USERS = "users";
+
+    public static final String QUERY_RESULTS = "default-query-results-region";
+
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    // one cache manager per application context, the provider would otherwise share them between contexts of the same class loader
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${ebai.second-level-cache.locations.maximum-size}") long locations,
+                                                @Value("${ebai.second-level-cache.location-users.maximum-size}") long locationUsers,
+                                                @Value("${ebai.second-level-cache.users.maximum-size}") long users,
+                                                @Value("${ebai.second-level-cache.query-results.maximum-size}") long queryResults) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("ebai:" + UUID.randomUUID()), getClass().getClassLoader());
+        createRegion(cacheManager, LOCATIONS, OptionalLong.of(locations));
+        createRegion(cacheManager, LOCATION_USERS, OptionalLong.of(locationUsers));
+        createRegion(cacheManager, USERS, OptionalLong.of(users));
+        createRegion(cacheManager, QUERY_RESULTS, OptionalLong.of(queryResults));
+        // evicted timestamps would let stale query results through
+        createRegion(cacheManager, UPDATE_TIMESTAMPS, OptionalLong.empty());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, OptionalLong maximumSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maximumSize);
+        // hibernate only stores immutable cache entries, copying them on every read is wasted work
+        configuration.setStoreByValue(false);
+        configuration.setNativeStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+}
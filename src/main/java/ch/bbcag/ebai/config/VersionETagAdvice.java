@@ -0,0 +1,123 @@
+package ch.bbcag.ebai.config;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.KeysetPage;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.LocationSummary;
+import ch.bbcag.ebai.models.User;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Optional;
+
+// ETags from the ids and versions of the rows a response is rendered from, so an unchanged resource gets its 304 before jackson runs
+@ControllerAdvice
+public class VersionETagAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (request.getMethod() != HttpMethod.GET
+                || !(request instanceof ServletServerHttpRequest servletRequest) || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+        String etag = VersionTag.of(body instanceof Optional<?> optional ? optional.orElse(null) : body);
+        if (etag != null && new ServletWebRequest(servletRequest.getServletRequest(), servletResponse.getServletResponse()).checkNotModified(etag)) {
+            return null;
+        }
+        return body;
+    }
+
+    // walks the same graph as the JSON; the row hashes are summed because the collections are unordered sets
+    static class VersionTag {
+
+        private long sum;
+
+        private int count;
+
+        // the tag of a single entity starts with its own version, which is what a conditional update checks
+        static String of(Object body) {
+            VersionTag tag = new VersionTag();
+            if (body instanceof Advert advert) {
+                tag.add(advert);
+                return tag.etag(advert.getVersion() + ".");
+            } else if (body instanceof User user) {
+                tag.add(user);
+                return tag.etag(user.getVersion() + ".");
+            } else if (body instanceof Location location) {
+                tag.add(location);
+                return tag.etag(location.getVersion() + ".");
+            } else if (body instanceof Bid bid) {
+                tag.add(bid);
+                return tag.etag(bid.getVersion() + ".");
+            } else if (body instanceof KeysetPage<?> page && tag.addSummaries(page.items())) {
+                tag.add(4, page.nextCursor(), 0);
+            } else if (!(body instanceof Iterable<?> summaries) || !tag.addSummaries(summaries)) {
+                return null;
+            }
+            return tag.etag("");
+        }
+
+        private String etag(String prefix) {
+            return "W/\"" + prefix + Integer.toHexString(count) + "-" + Long.toHexString(sum) + "\"";
+        }
+
+        private void add(Advert advert) {
+            add(0, advert.getId(), advert.getVersion());
+            advert.getBids().forEach(this::add);
+        }
+
+        private void add(Bid bid) {
+            add(1, bid.getId(), bid.getVersion());
+        }
+
+        private void add(User user) {
+            add(2, user.getId(), user.getVersion());
+            user.getAdverts().forEach(this::add);
+            user.getBids().forEach(this::add);
+        }
+
+        private void add(Location location) {
+            add(3, location.getId(), location.getVersion());
+            location.getUsers().forEach(this::add);
+        }
+
+        // the listing also changes when users join or leave a location
+        private boolean addSummaries(Iterable<?> summaries) {
+            for (Object summary : summaries) {
+                if (!(summary instanceof LocationSummary location)) {
+                    return false;
+                }
+                add(5, location.id(), ((long) location.version() << 32) ^ location.userCount());
+            }
+            return true;
+        }
+
+        private void add(int kind, Integer id, long state) {
+            count++;
+            sum += mix(mix(((long) kind << 32) | (id == null ? 0 : id & 0xffffffffL)) + state);
+        }
+
+        // splitmix64 finalizer
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -1,10 +1,27 @@
 package ch.bbcag.ebai.controllers;
 
 import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.AdvertSummary;
+import ch.bbcag.ebai.models.BatchLookup;
+import ch.bbcag.ebai.models.HighestBid;
+import ch.bbcag.ebai.models.KeysetPage;
+import ch.bbcag.ebai.models.MergePatchResult;
 import ch.bbcag.ebai.models.User;
 import ch.bbcag.ebai.repositories.AdvertRepository;
+import ch.bbcag.ebai.services.AdvertSearchIndex;
+import ch.bbcag.ebai.services.BidBroadcaster;
+import ch.bbcag.ebai.services.ConditionalUpdateService;
+import ch.bbcag.ebai.services.EntityCaches;
+import ch.bbcag.ebai.services.HighestBidIndex;
+import ch.bbcag.ebai.services.JsonStreamWriter;
+import ch.bbcag.ebai.services.MergePatchService;
+import ch.bbcag.ebai.services.NameSuggestService;
+import ch.bbcag.ebai.services.PlzIndex;
+import ch.bbcag.ebai.services.RegionIndex;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,13 +30,24 @@ import org.apache.logging.log4j.util.Strings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/adverts")
@@ -28,11 +56,41 @@ public class AdvertController {
     @Autowired
     private AdvertRepository advertRepository;
 
-    @Operation(summary = "Find a advert using the name. If no name is given, all adverts will be returned")
+    @Autowired
+    private HighestBidIndex highestBidIndex;
+
+    @Autowired
+    private BidBroadcaster bidBroadcaster;
+
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private AdvertSearchIndex advertSearchIndex;
+
+    @Autowired
+    private NameSuggestService nameSuggestService;
+
+    @Autowired
+    private EntityCaches entityCaches;
+
+    @Autowired
+    private ConditionalUpdateService conditionalUpdateService;
+
+    @Autowired
+    private MergePatchService mergePatchService;
+
+    @Autowired
+    private RegionIndex regionIndex;
+
+    @Autowired
+    private PlzIndex plzIndex;
+
+    @Operation(summary = "Find a advert using the name, best matches first. If no name is given, all adverts will be returned")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Bid found",
                     content = {@Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))}),
+                            schema = @Schema(implementation = AdvertSummary.class))}),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden",
@@ -43,16 +101,171 @@ public class AdvertController {
                     content = @Content)
     })
     @GetMapping
-    public Iterable<Advert> findByName(@Parameter(description = "Advert name to search") @RequestParam(required = false) String name) {
+    public Iterable<AdvertSummary> findByName(@Parameter(description = "Advert name to search") @RequestParam(required = false) String name) {
         if (Strings.isNotBlank(name)) {
             try {
-                return advertRepository.findByName(name);
+                List<Integer> ids = advertSearchIndex.search(name);
+                if (ids.isEmpty()) {
+                    return List.of();
+                }
+                Map<Integer, AdvertSummary> adverts = advertRepository.findSummariesByIdIn(ids).stream()
+                        .collect(Collectors.toMap(AdvertSummary::id, Function.identity()));
+                return ids.stream().map(adverts::get).filter(Objects::nonNull).toList();
             } catch (NoSuchElementException e) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND);
             }
         } else {
-            return advertRepository.findAll();
+            return advertRepository.findAllSummaries();
+        }
+    }
+
+    @Operation(summary = "Find a page of adverts using the name, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Adverts found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"limit", "!ids", "!locationId", "!plzFrom", "!plzTo"})
+    public KeysetPage<AdvertSummary> findPageByName(@Parameter(description = "Advert name to search") @RequestParam(required = false) String name,
+                                             @Parameter(description = "Maximum number of adverts to return") @RequestParam Integer limit,
+                                             @Parameter(description = "Id of the last advert of the previous page") @RequestParam(required = false) Integer after) {
+        if (Strings.isNotBlank(name)) {
+            return KeysetPage.of(advertRepository.findByNameAfter(name, KeysetPage.after(after), KeysetPage.pageable(limit)), limit, AdvertSummary::id);
+        } else {
+            return KeysetPage.of(advertRepository.findAfter(KeysetPage.after(after), KeysetPage.pageable(limit)), limit, AdvertSummary::id);
+        }
+    }
+
+    @Operation(summary = "Find the adverts of the users living at a location, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Adverts found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = "locationId")
+    public KeysetPage<AdvertSummary> findPageByLocation(@Parameter(description = "Id of the location") @RequestParam Integer locationId,
+                                                        @Parameter(description = "Maximum number of adverts to return") @RequestParam(required = false) Integer limit,
+                                                        @Parameter(description = "Id of the last advert of the previous page") @RequestParam(required = false) Integer after) {
+        return findRegionPage(new int[]{locationId}, limit, after);
+    }
+
+    @Operation(summary = "Find the adverts of the users living in a plz range, both bounds included, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Adverts found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "400", description = "plzFrom is greater than plzTo",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"plzFrom", "plzTo"})
+    public KeysetPage<AdvertSummary> findPageByPlzRange(@Parameter(description = "Lowest plz") @RequestParam Integer plzFrom,
+                                                        @Parameter(description = "Highest plz") @RequestParam Integer plzTo,
+                                                        @Parameter(description = "Maximum number of adverts to return") @RequestParam(required = false) Integer limit,
+                                                        @Parameter(description = "Id of the last advert of the previous page") @RequestParam(required = false) Integer after) {
+        if (plzFrom > plzTo) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "plzFrom must not be greater than plzTo");
         }
+        return findRegionPage(plzIndex.findIdsByPlzRange(plzFrom, plzTo), limit, after);
+    }
+
+    @Operation(summary = "Reject a plz range without plzTo")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "plzFrom and plzTo must be given together",
+                    content = @Content)
+    })
+    @GetMapping(params = {"plzFrom", "!plzTo"})
+    public void rejectPlzFromWithoutPlzTo() {
+        throw halfPlzRange();
+    }
+
+    @Operation(summary = "Reject a plz range without plzFrom")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "plzFrom and plzTo must be given together",
+                    content = @Content)
+    })
+    @GetMapping(params = {"!plzFrom", "plzTo"})
+    public void rejectPlzToWithoutPlzFrom() {
+        throw halfPlzRange();
+    }
+
+    @Operation(summary = "Find several adverts by id in one request. The adverts are returned in the order of the ids, ids that do not exist are listed as missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Adverts found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BatchLookup.class))}),
+            @ApiResponse(responseCode = "400", description = "Too many ids",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = "ids")
+    public BatchLookup<AdvertSummary> findByIds(@Parameter(description = "Ids of the adverts") @RequestParam List<Integer> ids) {
+        if (ids.size() > BatchLookup.MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BatchLookup.MAX_IDS + " ids can be requested at once");
+        }
+        return BatchLookup.of(ids, advertRepository::findSummariesByIdIn, AdvertSummary::id);
+    }
+
+    @Operation(summary = "Stream all adverts, or the adverts matching the name, as one JSON array without loading them into memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Adverts streamed",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdvertSummary.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void streamByName(@Parameter(description = "Advert name to search") @RequestParam(required = false) String name, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (Strings.isNotBlank(name)) {
+            jsonStreamWriter.writeArray(() -> advertRepository.streamByName(name), response.getOutputStream());
+        } else {
+            jsonStreamWriter.writeArray(advertRepository::streamAll, response.getOutputStream());
+        }
+    }
+
+    @Operation(summary = "Suggest the alphabetically first advert names starting with the prefix")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions found",
+                    content = {@Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = String.class)))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping("suggest")
+    public List<String> suggest(@Parameter(description = "Start of the advert name") @RequestParam String prefix,
+                                @Parameter(description = "Maximum number of suggestions") @RequestParam(required = false) Integer limit) {
+        return nameSuggestService.suggestAdverts(prefix, limit);
     }
 
     @Operation(summary = "Find a advert using the id")
@@ -70,14 +283,53 @@ public class AdvertController {
                     content = @Content)
     })
     @GetMapping("{id}")
-    public Advert findById(@Parameter(description = "Id of the advert to get") @RequestParam(required = false) Integer id) {
+    public Advert findById(@Parameter(description = "Id of the advert to get") @PathVariable Integer id) {
         try {
-            return advertRepository.findById(id).orElseThrow();
+            return entityCaches.findAdvert(id).orElseThrow();
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Advert not found");
         }
     }
 
+    @Operation(summary = "Find the highest bid of an advert")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Highest bid found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = HighestBid.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Advert has no bids",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping("{id}/highest-bid")
+    public HighestBid findHighestBid(@Parameter(description = "Id of the advert") @PathVariable Integer id) {
+        try {
+            return highestBidIndex.findByAdvertId(id).orElseThrow();
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Advert has no bids");
+        }
+    }
+
+    @Operation(summary = "Stream the accepted bids of an advert as server-sent events")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened",
+                    content = @Content(mediaType = "text/event-stream")),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(path = "{id}/bids/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBids(@Parameter(description = "Id of the advert") @PathVariable Integer id) {
+        return bidBroadcaster.subscribe(id);
+    }
+
     @Operation(summary = "Create a new advert")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Advert created succesfully",
@@ -95,7 +347,14 @@ public class AdvertController {
     @ResponseStatus(HttpStatus.CREATED)
     public void insert(@Parameter(description = "The new advert") @Valid @RequestBody Advert newAdvert) {
         try {
-            advertRepository.save(newAdvert);
+            Advert savedAdvert = advertRepository.save(newAdvert);
+            advertSearchIndex.put(savedAdvert.getId(), savedAdvert.getName());
+            nameSuggestService.putAdvert(savedAdvert.getId(), savedAdvert.getName());
+            regionIndex.putAdvert(savedAdvert.getId(), savedAdvert.getUser() == null ? null : savedAdvert.getUser().getId());
+            entityCaches.advertChanged(savedAdvert.getId());
+            if (savedAdvert.getUser() != null) {
+                entityCaches.userChanged(savedAdvert.getUser().getId());
+            }
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
@@ -117,10 +376,114 @@ public class AdvertController {
     @PutMapping(consumes = "application/json")
     public void update(@Parameter(description = "The updated advert") @Valid @RequestBody Advert updatedAdvert) {
         try {
-            advertRepository.save(updatedAdvert);
+            // a put replaces the row whatever version the client has seen; save merges into the loaded advert without selecting it again
+            if (updatedAdvert.getId() != null) {
+                advertRepository.findById(updatedAdvert.getId()).ifPresent(advert -> updatedAdvert.setVersion(advert.getVersion()));
+            }
+            Advert savedAdvert = advertRepository.save(updatedAdvert);
+            advertSearchIndex.put(savedAdvert.getId(), savedAdvert.getName());
+            nameSuggestService.putAdvert(savedAdvert.getId(), savedAdvert.getName());
+            regionIndex.putAdvert(savedAdvert.getId(), savedAdvert.getUser() == null ? null : savedAdvert.getUser().getId());
+            entityCaches.advertChanged(savedAdvert.getId());
+            if (savedAdvert.getUser() != null) {
+                entityCaches.userChanged(savedAdvert.getUser().getId());
+            }
+        } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(summary = "Update a advert if it still has the version of the If-Match header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Advert updated successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Advert was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PutMapping(consumes = "application/json", headers = HttpHeaders.IF_MATCH)
+    public void updateIfMatch(@Parameter(description = "The updated advert") @Valid @RequestBody Advert updatedAdvert,
+                              @Parameter(description = "The ETag of the advert the update is based on") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch) {
+        // without them the update matches no row and would be reported as a version conflict
+        if (updatedAdvert.getId() == null || updatedAdvert.getUser() == null || updatedAdvert.getUser().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "id and user.id are required");
+        }
+        int version = ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the advert"));
+        try {
+            if (!conditionalUpdateService.updateAdvert(updatedAdvert, version)) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Advert was changed by someone else");
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+        advertSearchIndex.put(updatedAdvert.getId(), updatedAdvert.getName());
+        nameSuggestService.putAdvert(updatedAdvert.getId(), updatedAdvert.getName());
+        regionIndex.putAdvert(updatedAdvert.getId(), updatedAdvert.getUser().getId());
+        entityCaches.advertChanged(updatedAdvert.getId());
+        entityCaches.userChanged(updatedAdvert.getUser().getId());
+    }
+
+    @Operation(summary = "Change single fields of a advert with a JSON merge patch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Advert updated successfully, an empty patch changes nothing",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request, only name and user can be patched",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Advert not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Advert was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PatchMapping(value = "{id}", consumes = {MergePatchService.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public void patch(@PathVariable Integer id,
+                      @Parameter(description = "The changed fields of the advert") @RequestBody JsonNode patch,
+                      @Parameter(description = "The ETag of the advert the patch is based on") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Integer version = ifMatch == null ? null : ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the advert"));
+        if (MergePatchService.isEmpty(patch)) {
+            checkUnpatchedAdvert(id, version);
+            return;
+        }
+        MergePatchResult result;
+        try {
+            result = mergePatchService.patchAdvert(id, patch, version);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
+        if (!result.updated()) {
+            throw version == null
+                    ? new ResponseStatusException(HttpStatus.NOT_FOUND, "Advert not found")
+                    : new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Advert was changed by someone else");
+        }
+        if (result.changed("name")) {
+            advertSearchIndex.put(id, result.text("name"));
+            nameSuggestService.putAdvert(id, result.text("name"));
+        }
+        if (result.changed("user")) {
+            regionIndex.putAdvert(id, result.number("user"));
+            entityCaches.userChanged(result.number("user"));
+        }
+        entityCaches.advertChanged(id);
     }
 
     @Operation(summary = "Delete a advert using the id")
@@ -140,8 +503,34 @@ public class AdvertController {
     public void deleteById(@PathVariable Integer id) {
         try {
             advertRepository.deleteById(id);
+            highestBidIndex.remove(id);
+            advertSearchIndex.remove(id);
+            nameSuggestService.removeAdvert(id);
+            regionIndex.removeAdvert(id);
+            entityCaches.advertChanged(id);
         } catch (EmptyResultDataAccessException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Advert could not be deleted");
         }
     }
+
+    private KeysetPage<AdvertSummary> findRegionPage(int[] locationIds, Integer limit, Integer after) {
+        int pageSize = limit == null ? KeysetPage.MAX_LIMIT : limit;
+        List<Integer> ids = regionIndex.findAdvertIds(locationIds, KeysetPage.after(after), KeysetPage.pageable(pageSize).getPageSize());
+        List<AdvertSummary> adverts = BatchLookup.of(ids, advertRepository::findSummariesByIdIn, AdvertSummary::id).items();
+        return KeysetPage.of(adverts, pageSize, AdvertSummary::id);
+    }
+
+    // without both bounds the request would silently fall back to the unfiltered listing
+    private static ResponseStatusException halfPlzRange() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "plzFrom and plzTo must be given together");
+    }
+
+    // an empty patch writes nothing and keeps the version, it only fails like a patch of a missing or changed advert would
+    private void checkUnpatchedAdvert(Integer id, Integer version) {
+        Advert advert = entityCaches.findAdvert(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Advert not found"));
+        if (version != null && advert.getVersion() != version) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Advert was changed by someone else");
+        }
+    }
 }
@@ -1,8 +1,19 @@
 package ch.bbcag.ebai.controllers;
 
+import ch.bbcag.ebai.models.BatchLookup;
 import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.models.KeysetPage;
+import ch.bbcag.ebai.models.MergePatchResult;
 import ch.bbcag.ebai.models.User;
 import ch.bbcag.ebai.repositories.BidRepository;
+import ch.bbcag.ebai.services.BidAcceptanceService;
+import ch.bbcag.ebai.services.BidBroadcaster;
+import ch.bbcag.ebai.services.ConditionalUpdateService;
+import ch.bbcag.ebai.services.EntityCaches;
+import ch.bbcag.ebai.services.JsonStreamWriter;
+import ch.bbcag.ebai.services.MergePatchService;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,13 +23,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 
 @RestController
@@ -28,6 +46,24 @@ public class BidController {
     @Autowired
     private BidRepository bidRepository;
 
+    @Autowired
+    private BidAcceptanceService bidAcceptanceService;
+
+    @Autowired
+    private EntityCaches entityCaches;
+
+    @Autowired
+    private ConditionalUpdateService conditionalUpdateService;
+
+    @Autowired
+    private MergePatchService mergePatchService;
+
+    @Autowired
+    private BidBroadcaster bidBroadcaster;
+
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
     @Operation(summary = "Find a bid using the value of the bid. If no value is given, all bids will be returned")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Bid found",
@@ -55,6 +91,73 @@ public class BidController {
         }
     }
 
+    @Operation(summary = "Find a page of bids using the value of the bid, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bids found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"limit", "!ids"})
+    public KeysetPage<Bid> findPageByValue(@Parameter(description = "Value of the bid") @RequestParam(required = false) Integer value,
+                                           @Parameter(description = "Maximum number of bids to return") @RequestParam Integer limit,
+                                           @Parameter(description = "Id of the last bid of the previous page") @RequestParam(required = false) Integer after) {
+        if (value == null) {
+            return KeysetPage.of(bidRepository.findAfter(KeysetPage.after(after), KeysetPage.pageable(limit)), limit, Bid::getId);
+        } else {
+            return KeysetPage.of(bidRepository.findByValueAfter(value, KeysetPage.after(after), KeysetPage.pageable(limit)), limit, Bid::getId);
+        }
+    }
+
+    @Operation(summary = "Find several bids by id in one request. The bids are returned in the order of the ids, ids that do not exist are listed as missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bids found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BatchLookup.class))}),
+            @ApiResponse(responseCode = "400", description = "Too many ids",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = "ids")
+    public BatchLookup<Bid> findByIds(@Parameter(description = "Ids of the bids") @RequestParam List<Integer> ids) {
+        if (ids.size() > BatchLookup.MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BatchLookup.MAX_IDS + " ids can be requested at once");
+        }
+        return BatchLookup.of(ids, bidRepository::findAllById, Bid::getId);
+    }
+
+    @Operation(summary = "Stream all bids, or the bids with the given value, as one JSON array without loading them into memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bids streamed",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BidSnapshot.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void streamByValue(@Parameter(description = "Value of the bid") @RequestParam(required = false) Integer value, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (value == null) {
+            jsonStreamWriter.writeArray(bidRepository::streamAll, response.getOutputStream());
+        } else {
+            jsonStreamWriter.writeArray(() -> bidRepository.streamByValue(value), response.getOutputStream());
+        }
+    }
+
     @Operation(summary = "Find a bid using the id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Bid found",
@@ -72,7 +175,7 @@ public class BidController {
     @GetMapping("{id}")
     public Optional<Bid> findById(@Parameter(description = "Id of the bid") @PathVariable Integer id) {
         try {
-            return bidRepository.findById(id);
+            return entityCaches.findBid(id);
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Bid not found");
         }
@@ -89,17 +192,32 @@ public class BidController {
                     content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden",
                     content = @Content),
+            @ApiResponse(responseCode = "409", description = "Bid is not higher than the current highest bid",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Bid could not be written in time",
                     content = @Content)
     })
     @PostMapping(consumes = "application/json")
     @ResponseStatus(HttpStatus.CREATED)
     public void insert(@Parameter(description = "The new bid") @Valid @RequestBody Bid newBid) {
+        if (newBid.getAdvert() == null || newBid.getAdvert().getId() == null || newBid.getUser() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid needs an advert and a user");
+        }
+        boolean accepted;
         try {
-            bidRepository.save(newBid);
+            accepted = bidAcceptanceService.accept(newBid);
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
+        } catch (CompletionException | IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Bid could not be written");
+        }
+        if (!accepted) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Bid must be higher than the current highest bid");
         }
+        bidChanged(newBid.getId(), newBid.getAdvert().getId(), newBid.getUser().getId());
+        bidBroadcaster.publish(new BidSnapshot(newBid.getId(), newBid.getAdvert().getId(), newBid.getUser().getId(), newBid.getValue()));
     }
 
     @Operation(summary = "Update a bid")
@@ -112,16 +230,133 @@ public class BidController {
                     content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden",
                     content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict, a changed value must be higher than the current highest bid",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Server Error",
                     content = @Content)
     })
     @PutMapping(consumes = "application/json")
     public void update(@Parameter(description = "The updated bid") @Valid @RequestBody Bid updatedBid) {
+        if (updatedBid.getAdvert() == null || updatedBid.getAdvert().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bid needs an advert");
+        }
+        Integer advertId = updatedBid.getAdvert().getId();
+        try {
+            // a put replaces the row whatever version the client has seen; save merges into the loaded bid without selecting it again
+            Optional<BidSnapshot> previousBid = updatedBid.getId() == null ? Optional.empty() : bidRepository.findById(updatedBid.getId()).map(bid -> {
+                updatedBid.setVersion(bid.getVersion());
+                return new BidSnapshot(bid.getId(), bid.getAdvert().getId(), bid.getUser().getId(), bid.getValue());
+            });
+            // the same rule as the conditional update: the bid keeps its value on its advert or beats the highest bid;
+            // the loaded version makes the save fail if the bid was changed after it was read
+            boolean unchanged = previousBid.filter(bid -> bid.advertId().equals(advertId) && bid.value().equals(updatedBid.getValue())).isPresent();
+            Bid savedBid = bidAcceptanceService.change(advertId, valueToBeat -> {
+                if (!unchanged && updatedBid.getValue() <= valueToBeat) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Bid must be higher than the current highest bid");
+                }
+                return bidRepository.save(updatedBid);
+            });
+            previousBid.ifPresent(bid -> {
+                if (!bid.advertId().equals(advertId)) {
+                    bidAcceptanceService.reloadHighestBid(bid.advertId());
+                }
+                bidChanged(bid.id(), bid.advertId(), bid.userId());
+            });
+            bidChanged(savedBid.getId(), savedBid.getAdvert().getId(), savedBid.getUser() == null ? null : savedBid.getUser().getId());
+        } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(summary = "Update a bid if it still has the version of the If-Match header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bid updated successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict, a changed value must be higher than the current highest bid",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Bid was changed by someone else or belongs to another advert",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PutMapping(consumes = "application/json", headers = HttpHeaders.IF_MATCH)
+    public void updateIfMatch(@Parameter(description = "The updated bid") @Valid @RequestBody Bid updatedBid,
+                              @Parameter(description = "The ETag of the bid the update is based on") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch) {
+        // without them the update matches no row and would be reported as a version conflict
+        if (updatedBid.getId() == null || updatedBid.getAdvert() == null || updatedBid.getAdvert().getId() == null
+                || updatedBid.getUser() == null || updatedBid.getUser().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "id, advert.id and user.id are required");
+        }
+        int version = ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the bid"));
+        boolean updated;
+        try {
+            updated = bidAcceptanceService.change(updatedBid.getAdvert().getId(),
+                    valueToBeat -> conditionalUpdateService.updateBid(updatedBid, version, valueToBeat));
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+        if (!updated) {
+            throw rejectedChange(updatedBid.getId(), updatedBid.getAdvert().getId(), version);
+        }
+        bidChanged(updatedBid.getId(), updatedBid.getAdvert().getId(), updatedBid.getUser().getId());
+    }
+
+    @Operation(summary = "Change single fields of a bid with a JSON merge patch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bid updated successfully, an empty patch changes nothing",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request, only value and user can be patched",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Bid not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict, a changed value must be higher than the current highest bid",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Bid was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PatchMapping(value = "{id}", consumes = {MergePatchService.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public void patch(@PathVariable Integer id,
+                      @Parameter(description = "The changed fields of the bid") @RequestBody JsonNode patch,
+                      @Parameter(description = "The ETag of the bid the patch is based on") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Integer version = ifMatch == null ? null : ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the bid"));
+        if (MergePatchService.isEmpty(patch)) {
+            checkUnpatchedBid(id, version);
+            return;
+        }
+        // the advert of the bid is needed for its highest bid, the snapshot is read instead of the entity
+        BidSnapshot previousBid = bidRepository.findSnapshotById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bid not found"));
+        MergePatchResult result;
         try {
-            bidRepository.save(updatedBid);
+            // a changed value has to beat the highest bid like a new bid, so it is written under the advert lock
+            result = bidAcceptanceService.change(previousBid.advertId(),
+                    valueToBeat -> mergePatchService.patchBid(id, patch, version, valueToBeat));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
+        if (!result.updated()) {
+            throw rejectedChange(id, null, version);
+        }
+        bidChanged(id, previousBid.advertId(), previousBid.userId());
+        if (result.changed("user")) {
+            entityCaches.userChanged(result.number("user"));
+        }
     }
 
     @Operation(summary = "Delete a bid using the id")
@@ -140,9 +375,45 @@ public class BidController {
     @DeleteMapping("{id}")
     public void deleteById(@PathVariable Integer id) {
         try {
+            Optional<BidSnapshot> bid = bidRepository.findSnapshotById(id);
             bidRepository.deleteById(id);
+            bid.ifPresent(deletedBid -> {
+                bidAcceptanceService.reloadHighestBid(deletedBid.advertId());
+                bidChanged(deletedBid.id(), deletedBid.advertId(), deletedBid.userId());
+            });
         } catch (EmptyResultDataAccessException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Bid could not be deleted");
         }
     }
+
+    // a bid is part of the cached advert, bidder and owner graphs
+    private void bidChanged(Integer bidId, Integer advertId, Integer userId) {
+        entityCaches.bidChanged(bidId);
+        entityCaches.advertChanged(advertId);
+        if (userId != null) {
+            entityCaches.userChanged(userId);
+        }
+    }
+
+    // the update matched no row, so the bid is gone, was changed or its value does not beat the highest bid
+    private ResponseStatusException rejectedChange(Integer id, Integer advertId, Integer version) {
+        Optional<Bid> bid = bidRepository.findById(id);
+        if (bid.isEmpty()) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Bid not found");
+        }
+        if ((advertId != null && !advertId.equals(bid.get().getAdvert().getId()))
+                || (version != null && bid.get().getVersion() != version)) {
+            return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Bid was changed by someone else");
+        }
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Bid must be higher than the current highest bid");
+    }
+
+    // an empty patch writes nothing and keeps the version, it only fails like a patch of a missing or changed bid would
+    private void checkUnpatchedBid(Integer id, Integer version) {
+        Bid bid = entityCaches.findBid(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bid not found"));
+        if (version != null && bid.getVersion() != version) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Bid was changed by someone else");
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package ch.bbcag.ebai.controllers;
+
+import ch.bbcag.ebai.models.CacheStatistics;
+import ch.bbcag.ebai.services.EntityCaches;
+import ch.bbcag.ebai.services.ResponseCache;
+import ch.bbcag.ebai.services.SecondLevelCaches;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+@RestController
+@RequestMapping("/caches")
+public class CacheController {
+
+    @Autowired
+    private EntityCaches entityCaches;
+
+    @Autowired
+    private SecondLevelCaches secondLevelCaches;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+
+    @Operation(summary = "Get the hit, miss and eviction statistics of the entity caches, the response cache and the hibernate second-level cache regions")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics found",
+                    content = {@Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = CacheStatistics.class)))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping("stats")
+    public List<CacheStatistics> findStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>(entityCaches.statistics());
+        statistics.add(responseCache.statistics());
+        statistics.addAll(secondLevelCaches.statistics());
+        return statistics;
+    }
+}
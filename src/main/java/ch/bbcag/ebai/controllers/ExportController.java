@@ -0,0 +1,73 @@
+package ch.bbcag.ebai.controllers;
+
+import ch.bbcag.ebai.config.AcceptEncoding;
+import ch.bbcag.ebai.services.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Operation(summary = "Export all adverts, bids, users or locations as newline delimited JSON or CSV, streamed in id order. Pass the last exported id as since to only get newer rows. Compressed with gzip when the client accepts it")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rows exported",
+                    content = {@Content(mediaType = ImportController.NDJSON), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Unknown format",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Resource not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping("{resource}")
+    public void export(@Parameter(description = "adverts, bids, users or locations") @PathVariable String resource,
+                       @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format,
+                       @Parameter(description = "Only export rows with a greater id") @RequestParam(required = false) Integer since,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        if (!exportService.canExport(resource)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Resource " + resource + " can not be exported");
+        }
+        ExportService.Format exportFormat = switch (format) {
+            case "ndjson" -> ExportService.Format.NDJSON;
+            case "csv" -> ExportService.Format.CSV;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be ndjson or csv");
+        };
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        response.setContentType(exportFormat == ExportService.Format.CSV ? "text/csv;charset=UTF-8" : ImportController.NDJSON);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource + "." + format + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream()) {
+            exportService.export(resource, exportFormat, since == null ? 0 : since, outputStream);
+        }
+    }
+}
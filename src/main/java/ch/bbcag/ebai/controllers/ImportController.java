@@ -0,0 +1,58 @@
+package ch.bbcag.ebai.controllers;
+
+import ch.bbcag.ebai.models.ImportResult;
+import ch.bbcag.ebai.services.ImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ImportService importService;
+
+    @Operation(summary = "Import adverts, users, locations or bids from newline delimited JSON, one record per line in the format of the create endpoints. Invalid lines are reported and skipped, the other lines are imported")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ImportResult.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Resource not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PostMapping(path = "{resource}", consumes = NDJSON)
+    public ImportResult importRecords(@Parameter(description = "adverts, users, locations or bids") @PathVariable String resource,
+                                      HttpServletRequest request) throws IOException {
+        InputStream input = request.getInputStream();
+        return switch (resource) {
+            case "adverts" -> importService.importAdverts(input);
+            case "users" -> importService.importUsers(input);
+            case "locations" -> importService.importLocations(input);
+            case "bids" -> importService.importBids(input);
+            default -> throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Resource " + resource + " can not be imported");
+        };
+    }
+}
@@ -1,10 +1,21 @@
 package ch.bbcag.ebai.controllers;
 
+import ch.bbcag.ebai.models.BatchLookup;
+import ch.bbcag.ebai.models.KeysetPage;
 import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.LocationSummary;
+import ch.bbcag.ebai.models.MergePatchResult;
 import ch.bbcag.ebai.models.User;
 import ch.bbcag.ebai.repositories.LocationRepository;
+import ch.bbcag.ebai.services.ConditionalUpdateService;
+import ch.bbcag.ebai.services.EntityCaches;
+import ch.bbcag.ebai.services.JsonStreamWriter;
+import ch.bbcag.ebai.services.MergePatchService;
+import ch.bbcag.ebai.services.PlzIndex;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,11 +24,21 @@ import org.apache.logging.log4j.util.Strings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
@@ -29,12 +50,27 @@ public class LocationController {
     @Autowired
     private LocationRepository locationRepository;
 
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private EntityCaches entityCaches;
+
+    @Autowired
+    private ConditionalUpdateService conditionalUpdateService;
+
+    @Autowired
+    private MergePatchService mergePatchService;
+
+    @Autowired
+    private PlzIndex plzIndex;
+
 
     @Operation(summary = "Find a location using the name and/or the plz. If non of them is given, all locations will be returned")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Location found",
                     content = {@Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))}),
+                            schema = @Schema(implementation = LocationSummary.class))}),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden",
@@ -45,7 +81,7 @@ public class LocationController {
                     content = @Content)
     })
     @GetMapping
-    public Iterable<Location> findByNameOrPlz(@Parameter(description = "Name of the location") @RequestParam(required = false) String location, @Parameter(description = "Plz of the location") @RequestParam(required = false) Integer plz) {
+    public Iterable<LocationSummary> findByNameOrPlz(@Parameter(description = "Name of the location") @RequestParam(required = false) String location, @Parameter(description = "Plz of the location") @RequestParam(required = false) Integer plz) {
         if (Strings.isNotBlank(location) && plz != null) {
             try {
                 return locationRepository.findByNameAndPlz(location, plz);
@@ -60,13 +96,150 @@ public class LocationController {
             }
         } else if (Strings.isBlank(location) && plz != null) {
             try {
-                return locationRepository.findByPlz(plz);
+                return findSummaries(plzIndex.findIdsByPlz(plz));
             } catch (NoSuchElementException e) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Location not found");
             }
         } else {
-            return locationRepository.findAll();
+            return locationRepository.findAllSummaries();
+        }
+    }
+
+    @Operation(summary = "Find the locations with a plz between plzFrom and plzTo, both included")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Locations found",
+                    content = {@Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = LocationSummary.class)))}),
+            @ApiResponse(responseCode = "400", description = "plzFrom is greater than plzTo",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"plzFrom", "plzTo", "!limit", "!ids"})
+    public List<LocationSummary> findByPlzRange(@Parameter(description = "Lowest plz") @RequestParam Integer plzFrom,
+                                                @Parameter(description = "Highest plz") @RequestParam Integer plzTo) {
+        if (plzFrom > plzTo) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "plzFrom must not be greater than plzTo");
+        }
+        return findSummaries(plzIndex.findIdsByPlzRange(plzFrom, plzTo));
+    }
+
+    @Operation(summary = "Reject a plz range without plzTo")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "plzFrom and plzTo must be given together",
+                    content = @Content)
+    })
+    @GetMapping(params = {"plzFrom", "!plzTo"})
+    public void rejectPlzFromWithoutPlzTo() {
+        throw halfPlzRange();
+    }
+
+    @Operation(summary = "Reject a plz range without plzFrom")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "plzFrom and plzTo must be given together",
+                    content = @Content)
+    })
+    @GetMapping(params = {"!plzFrom", "plzTo"})
+    public void rejectPlzToWithoutPlzFrom() {
+        throw halfPlzRange();
+    }
+
+    @Operation(summary = "Find a page of the locations with a plz between plzFrom and plzTo, both included, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Locations found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "400", description = "plzFrom is greater than plzTo",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"plzFrom", "plzTo", "limit", "!ids"})
+    public KeysetPage<LocationSummary> findPageByPlzRange(@Parameter(description = "Lowest plz") @RequestParam Integer plzFrom,
+                                                          @Parameter(description = "Highest plz") @RequestParam Integer plzTo,
+                                                          @Parameter(description = "Maximum number of locations to return") @RequestParam Integer limit,
+                                                          @Parameter(description = "Id of the last location of the previous page") @RequestParam(required = false) Integer after) {
+        if (plzFrom > plzTo) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "plzFrom must not be greater than plzTo");
+        }
+        return findPlzPage(plzFrom, plzTo, limit, after);
+    }
+
+    @Operation(summary = "Find a page of locations using the name and/or the plz, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Locations found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"limit", "!ids", "!plzFrom", "!plzTo"})
+    public KeysetPage<LocationSummary> findPageByNameOrPlz(@Parameter(description = "Name of the location") @RequestParam(required = false) String location,
+                                                    @Parameter(description = "Plz of the location") @RequestParam(required = false) Integer plz,
+                                                    @Parameter(description = "Maximum number of locations to return") @RequestParam Integer limit,
+                                                    @Parameter(description = "Id of the last location of the previous page") @RequestParam(required = false) Integer after) {
+        Pageable pageable = KeysetPage.pageable(limit);
+        if (Strings.isNotBlank(location) && plz != null) {
+            return KeysetPage.of(locationRepository.findByNameAndPlzAfter(location, plz, KeysetPage.after(after), pageable), limit, LocationSummary::id);
+        } else if (Strings.isNotBlank(location)) {
+            return KeysetPage.of(locationRepository.findByNameAfter(location, KeysetPage.after(after), pageable), limit, LocationSummary::id);
+        } else if (plz != null) {
+            return findPlzPage(plz, plz, limit, after);
+        } else {
+            return KeysetPage.of(locationRepository.findAfter(KeysetPage.after(after), pageable), limit, LocationSummary::id);
+        }
+    }
+
+    @Operation(summary = "Find several locations by id in one request. The locations are returned in the order of the ids, ids that do not exist are listed as missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Locations found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BatchLookup.class))}),
+            @ApiResponse(responseCode = "400", description = "Too many ids",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = "ids")
+    public BatchLookup<LocationSummary> findByIds(@Parameter(description = "Ids of the locations") @RequestParam List<Integer> ids) {
+        if (ids.size() > BatchLookup.MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BatchLookup.MAX_IDS + " ids can be requested at once");
         }
+        return BatchLookup.of(ids, locationRepository::findSummariesByIdIn, LocationSummary::id);
+    }
+
+    @Operation(summary = "Stream all locations as one JSON array without loading them into memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Locations streamed",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = LocationSummary.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void streamAll(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonStreamWriter.writeArray(locationRepository::streamAll, response.getOutputStream());
     }
 
     @Operation(summary = "Find a location using the id")
@@ -86,7 +259,7 @@ public class LocationController {
     @GetMapping("{id}")
     public Optional<Location> findById(@Parameter(description = "Id of the location") @PathVariable Integer id) {
         try {
-            return locationRepository.findById(id);
+            return entityCaches.findLocation(id);
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Location not found");
         }
@@ -110,7 +283,9 @@ public class LocationController {
     @ResponseStatus(HttpStatus.CREATED)
     public void insert(@Parameter(description = "The new Location") @Valid @RequestBody Location newLocation) {
         try {
-            locationRepository.save(newLocation);
+            Location savedLocation = locationRepository.save(newLocation);
+            plzIndex.put(savedLocation.getId(), savedLocation.getPlz());
+            entityCaches.locationChanged(savedLocation.getId());
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
@@ -132,10 +307,101 @@ public class LocationController {
     @PutMapping(consumes = "application/json")
     public void update(@Parameter(description = "The updated location") @Valid @RequestBody Location updatedLocation) {
         try {
-            locationRepository.save(updatedLocation);
+            // a put replaces the row whatever version the client has seen; save merges into the loaded location without selecting it again
+            if (updatedLocation.getId() != null) {
+                locationRepository.findById(updatedLocation.getId()).ifPresent(location -> updatedLocation.setVersion(location.getVersion()));
+            }
+            Location savedLocation = locationRepository.save(updatedLocation);
+            plzIndex.put(savedLocation.getId(), savedLocation.getPlz());
+            entityCaches.locationChanged(savedLocation.getId());
+        } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(summary = "Update a location if it still has the version of the If-Match header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Location updated successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Location was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PutMapping(consumes = "application/json", headers = HttpHeaders.IF_MATCH)
+    public void updateIfMatch(@Parameter(description = "The updated location") @Valid @RequestBody Location updatedLocation,
+                              @Parameter(description = "The ETag of the location the update is based on") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch) {
+        // without an id the update matches no row and would be reported as a version conflict
+        if (updatedLocation.getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "id is required");
+        }
+        int version = ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the location"));
+        try {
+            if (!conditionalUpdateService.updateLocation(updatedLocation, version)) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Location was changed by someone else");
+            }
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
+        plzIndex.put(updatedLocation.getId(), updatedLocation.getPlz());
+        entityCaches.locationChanged(updatedLocation.getId());
+    }
+
+    @Operation(summary = "Change single fields of a location with a JSON merge patch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Location updated successfully, an empty patch changes nothing",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request, only name and plz can be patched",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Location not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "Location was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PatchMapping(value = "{id}", consumes = {MergePatchService.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public void patch(@PathVariable Integer id,
+                      @Parameter(description = "The changed fields of the location") @RequestBody JsonNode patch,
+                      @Parameter(description = "The ETag of the location the patch is based on") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Integer version = ifMatch == null ? null : ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the location"));
+        if (MergePatchService.isEmpty(patch)) {
+            checkUnpatchedLocation(id, version);
+            return;
+        }
+        MergePatchResult result;
+        try {
+            result = mergePatchService.patchLocation(id, patch, version);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+        if (!result.updated()) {
+            throw version == null
+                    ? new ResponseStatusException(HttpStatus.NOT_FOUND, "Location not found")
+                    : new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Location was changed by someone else");
+        }
+        if (result.changed("plz")) {
+            plzIndex.put(id, result.number("plz"));
+        }
+        entityCaches.locationChanged(id);
     }
 
     @Operation(summary = "Delete a location using the id")
@@ -155,8 +421,43 @@ public class LocationController {
     public void deleteById(@PathVariable Integer id) {
         try {
             locationRepository.deleteById(id);
+            plzIndex.remove(id);
+            entityCaches.locationChanged(id);
         } catch (EmptyResultDataAccessException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Location could not be deleted");
         }
     }
+
+    // the index already answered which locations match, unknown plz never reach the database
+    private List<LocationSummary> findSummaries(int[] ids) {
+        // the chunks are read in the order of the ids and every chunk comes back ordered by plz and id
+        List<LocationSummary> summaries = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += BatchLookup.CHUNK_SIZE) {
+            int to = Math.min(from + BatchLookup.CHUNK_SIZE, ids.length);
+            summaries.addAll(locationRepository.findSummariesByIdIn(Arrays.stream(ids, from, to).boxed().toList()));
+        }
+        return summaries;
+    }
+
+    // the index hands out the page ids ordered by id, the summaries come back ordered by plz
+    private KeysetPage<LocationSummary> findPlzPage(int plzFrom, int plzTo, int limit, Integer after) {
+        int[] ids = plzIndex.findPageByPlzRange(plzFrom, plzTo, KeysetPage.after(after), KeysetPage.pageable(limit).getPageSize());
+        List<LocationSummary> summaries = findSummaries(ids);
+        summaries.sort(Comparator.comparing(LocationSummary::id));
+        return KeysetPage.of(summaries, limit, LocationSummary::id);
+    }
+
+    // without both bounds the request would silently fall back to the unfiltered listing
+    private static ResponseStatusException halfPlzRange() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "plzFrom and plzTo must be given together");
+    }
+
+    // an empty patch writes nothing and keeps the version, it only fails like a patch of a missing or changed location would
+    private void checkUnpatchedLocation(Integer id, Integer version) {
+        Location location = entityCaches.findLocation(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Location not found"));
+        if (version != null && location.getVersion() != version) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Location was changed by someone else");
+        }
+    }
 }
@@ -1,10 +1,22 @@
 package ch.bbcag.ebai.controllers;
 
+import ch.bbcag.ebai.models.BatchLookup;
+import ch.bbcag.ebai.models.KeysetPage;
 import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.MergePatchResult;
 import ch.bbcag.ebai.models.User;
+import ch.bbcag.ebai.models.UserSummary;
 import ch.bbcag.ebai.repositories.UserRepository;
+import ch.bbcag.ebai.services.ConditionalUpdateService;
+import ch.bbcag.ebai.services.EntityCaches;
+import ch.bbcag.ebai.services.JsonStreamWriter;
+import ch.bbcag.ebai.services.MergePatchService;
+import ch.bbcag.ebai.services.NameSuggestService;
+import ch.bbcag.ebai.services.RegionIndex;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,11 +25,17 @@ import org.apache.logging.log4j.util.Strings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
@@ -28,11 +46,29 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private NameSuggestService nameSuggestService;
+
+    @Autowired
+    private EntityCaches entityCaches;
+
+    @Autowired
+    private ConditionalUpdateService conditionalUpdateService;
+
+    @Autowired
+    private MergePatchService mergePatchService;
+
+    @Autowired
+    private RegionIndex regionIndex;
+
     @Operation(summary = "Find a user using the name. If no name is given, all users will be returned")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User found",
                     content = {@Content(mediaType = "application/json",
-                            schema = @Schema(implementation = User.class))}),
+                            schema = @Schema(implementation = UserSummary.class))}),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden",
@@ -43,7 +79,7 @@ public class UserController {
                     content = @Content)
     })
     @GetMapping
-    public Iterable<User> findByName(@Parameter(description = "Username to search") @RequestParam(required = false) String name) {
+    public Iterable<UserSummary> findByName(@Parameter(description = "Username to search") @RequestParam(required = false) String name) {
         if (Strings.isNotBlank(name)) {
             try {
                 return userRepository.findByName(name);
@@ -51,10 +87,95 @@ public class UserController {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND);
             }
         } else {
-            return userRepository.findAll();
+            return userRepository.findAllSummaries();
+        }
+    }
+
+    @Operation(summary = "Find a page of users using the name, ordered by id. Pass the returned next cursor as after to get the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeysetPage.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = {"limit", "!ids"})
+    public KeysetPage<UserSummary> findPageByName(@Parameter(description = "Username to search") @RequestParam(required = false) String name,
+                                           @Parameter(description = "Maximum number of users to return") @RequestParam Integer limit,
+                                           @Parameter(description = "Id of the last user of the previous page") @RequestParam(required = false) Integer after) {
+        if (Strings.isNotBlank(name)) {
+            return KeysetPage.of(userRepository.findByNameAfter(name, KeysetPage.after(after), KeysetPage.pageable(limit)), limit, UserSummary::id);
+        } else {
+            return KeysetPage.of(userRepository.findAfter(KeysetPage.after(after), KeysetPage.pageable(limit)), limit, UserSummary::id);
+        }
+    }
+
+    @Operation(summary = "Find several users by id in one request. The users are returned in the order of the ids, ids that do not exist are listed as missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users found",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BatchLookup.class))}),
+            @ApiResponse(responseCode = "400", description = "Too many ids",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(params = "ids")
+    public BatchLookup<UserSummary> findByIds(@Parameter(description = "Ids of the users") @RequestParam List<Integer> ids) {
+        if (ids.size() > BatchLookup.MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BatchLookup.MAX_IDS + " ids can be requested at once");
+        }
+        return BatchLookup.of(ids, userRepository::findSummariesByIdIn, UserSummary::id);
+    }
+
+    @Operation(summary = "Stream all users, or the users matching the name, as one JSON array without loading them into memory")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users streamed",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UserSummary.class))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void streamByName(@Parameter(description = "Username to search") @RequestParam(required = false) String name, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (Strings.isNotBlank(name)) {
+            jsonStreamWriter.writeArray(() -> userRepository.streamByName(name), response.getOutputStream());
+        } else {
+            jsonStreamWriter.writeArray(userRepository::streamAll, response.getOutputStream());
         }
     }
 
+    @Operation(summary = "Suggest the alphabetically first user names starting with the prefix")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions found",
+                    content = {@Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = String.class)))}),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @GetMapping("suggest")
+    public List<String> suggest(@Parameter(description = "Start of the user name") @RequestParam String prefix,
+                                @Parameter(description = "Maximum number of suggestions") @RequestParam(required = false) Integer limit) {
+        return nameSuggestService.suggestUsers(prefix, limit);
+    }
+
     @Operation(summary = "Find a user using the id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User found",
@@ -72,7 +193,7 @@ public class UserController {
     @GetMapping("{id}")
     public Optional<User> findById(@Parameter(description = "The id of the user") @PathVariable Integer id) {
         try {
-            return userRepository.findById(id);
+            return entityCaches.findUser(id);
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
         }
@@ -96,7 +217,13 @@ public class UserController {
     @ResponseStatus(HttpStatus.CREATED)
     public void insert(@Parameter(description = "The new User") @Valid @RequestBody User newUser) {
         try {
-            userRepository.save(newUser);
+            User savedUser = userRepository.save(newUser);
+            nameSuggestService.putUser(savedUser.getId(), savedUser.getName());
+            regionIndex.putUser(savedUser.getId(), savedUser.getLocation() == null ? null : savedUser.getLocation().getId());
+            entityCaches.userChanged(savedUser.getId());
+            if (savedUser.getLocation() != null) {
+                entityCaches.locationChanged(savedUser.getLocation().getId());
+            }
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
@@ -118,10 +245,111 @@ public class UserController {
     @PutMapping(consumes = "application/json")
     public void update(@Parameter(description = "The updated user") @Valid @RequestBody User updatedUser) {
         try {
-            userRepository.save(updatedUser);
+            // a put replaces the row whatever version the client has seen; save merges into the loaded user without selecting it again
+            if (updatedUser.getId() != null) {
+                userRepository.findById(updatedUser.getId()).ifPresent(user -> updatedUser.setVersion(user.getVersion()));
+            }
+            User savedUser = userRepository.save(updatedUser);
+            nameSuggestService.putUser(savedUser.getId(), savedUser.getName());
+            regionIndex.putUser(savedUser.getId(), savedUser.getLocation() == null ? null : savedUser.getLocation().getId());
+            entityCaches.userChanged(savedUser.getId());
+            if (savedUser.getLocation() != null) {
+                entityCaches.locationChanged(savedUser.getLocation().getId());
+            }
+        } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(summary = "Update a user if it still has the version of the If-Match header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User updated successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "User was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PutMapping(consumes = "application/json", headers = HttpHeaders.IF_MATCH)
+    public void updateIfMatch(@Parameter(description = "The updated user") @Valid @RequestBody User updatedUser,
+                              @Parameter(description = "The ETag of the user the update is based on") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch) {
+        // without them the update matches no row and would be reported as a version conflict
+        if (updatedUser.getId() == null || updatedUser.getLocation() == null || updatedUser.getLocation().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "id and location.id are required");
+        }
+        int version = ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the user"));
+        try {
+            if (!conditionalUpdateService.updateUser(updatedUser, version)) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User was changed by someone else");
+            }
         } catch (DataIntegrityViolationException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT);
         }
+        nameSuggestService.putUser(updatedUser.getId(), updatedUser.getName());
+        regionIndex.putUser(updatedUser.getId(), updatedUser.getLocation().getId());
+        entityCaches.userChanged(updatedUser.getId());
+        entityCaches.locationChanged(updatedUser.getLocation().getId());
+    }
+
+    @Operation(summary = "Change single fields of a user with a JSON merge patch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User updated successfully, an empty patch changes nothing",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad Request, only name and location can be patched",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content),
+            @ApiResponse(responseCode = "403", description = "Forbidden",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "User not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict",
+                    content = @Content),
+            @ApiResponse(responseCode = "412", description = "User was changed by someone else",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Server Error",
+                    content = @Content)
+    })
+    @PatchMapping(value = "{id}", consumes = {MergePatchService.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public void patch(@PathVariable Integer id,
+                      @Parameter(description = "The changed fields of the user") @RequestBody JsonNode patch,
+                      @Parameter(description = "The ETag of the user the patch is based on") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Integer version = ifMatch == null ? null : ConditionalUpdateService.versionOf(ifMatch)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the ETag of the user"));
+        if (MergePatchService.isEmpty(patch)) {
+            checkUnpatchedUser(id, version);
+            return;
+        }
+        MergePatchResult result;
+        try {
+            result = mergePatchService.patchUser(id, patch, version);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+        if (!result.updated()) {
+            throw version == null
+                    ? new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")
+                    : new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User was changed by someone else");
+        }
+        if (result.changed("name")) {
+            nameSuggestService.putUser(id, result.text("name"));
+        }
+        if (result.changed("location")) {
+            regionIndex.putUser(id, result.number("location"));
+            entityCaches.locationChanged(result.number("location"));
+        }
+        entityCaches.userChanged(id);
     }
 
     @Operation(summary = "Delete a user using the id")
@@ -141,9 +369,21 @@ public class UserController {
     public void deleteById(@PathVariable Integer id) {
         try {
             userRepository.deleteById(id);
+            nameSuggestService.removeUser(id);
+            regionIndex.removeUser(id);
+            entityCaches.userRemoved(id);
         } catch (EmptyResultDataAccessException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User could not be deleted");
         }
     }
+
+    // an empty patch writes nothing and keeps the version, it only fails like a patch of a missing or changed user would
+    private void checkUnpatchedUser(Integer id, Integer version) {
+        User user = entityCaches.findUser(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        if (version != null && user.getVersion() != version) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User was changed by someone else");
+        }
+    }
 }
 
@@ -1,6 +1,8 @@
 package ch.bbcag.ebai.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -28,6 +30,12 @@ public class Advert {
     @OneToMany(mappedBy = "advert", fetch = FetchType.LAZY)
     private Set<Bid> bids = new HashSet<>();
 
+    // bumped by hibernate on every update, rows inserted through JdbcTemplate start at the column default
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int version;
+
     public Integer getId() {
         return id;
     }
@@ -59,4 +67,12 @@ public class Advert {
     public void setBids(Set<Bid> bids) {
         this.bids = bids;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record AdvertSummary(Integer id, String name, Integer userId, long bidCount, Integer highestBid) {
+}
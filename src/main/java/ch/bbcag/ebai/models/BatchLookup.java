@@ -0,0 +1,39 @@
+package ch.bbcag.ebai.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+public record BatchLookup<T>(List<T> items, List<Integer> missing) {
+
+    public static final int MAX_IDS = 1000;
+
+    // ids per IN list, so a huge request never turns into one huge statement
+    public static final int CHUNK_SIZE = 500;
+
+    // items in the order of the requested ids, duplicates are returned once
+    public static <T> BatchLookup<T> of(List<Integer> ids, Function<List<Integer>, Iterable<T>> finder, Function<T, Integer> idOf) {
+        List<Integer> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Integer, T> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = distinctIds.subList(from, Math.min(from + CHUNK_SIZE, distinctIds.size()));
+            for (T item : finder.apply(chunk)) {
+                found.put(idOf.apply(item), item);
+            }
+        }
+        List<T> items = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : distinctIds) {
+            T item = found.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new BatchLookup<>(items, missing);
+    }
+}
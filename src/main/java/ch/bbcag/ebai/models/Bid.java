@@ -1,9 +1,10 @@
 package ch.bbcag.ebai.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
-import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
 @Entity
@@ -15,7 +16,6 @@ public class Bid {
 
 
     @NotNull
-    @NotBlank
     private Integer value;
 
     @ManyToOne
@@ -28,6 +28,11 @@ public class Bid {
     @JsonBackReference("user")
     private User user;
 
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int version;
+
     public Integer getId() {
         return id;
     }
@@ -59,4 +64,12 @@ public class Bid {
     public void setUser(User user) {
         this.user = user;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
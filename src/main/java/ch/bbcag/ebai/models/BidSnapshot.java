@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record BidSnapshot(Integer id, Integer advertId, Integer userId, Integer value) {
+}
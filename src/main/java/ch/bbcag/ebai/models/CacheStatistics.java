@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record CacheStatistics(String name, long size, long hitCount, long missCount, double hitRate, long evictionCount) {
+}
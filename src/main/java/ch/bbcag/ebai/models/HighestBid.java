@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record HighestBid(Integer advertId, Integer value, Integer userId, long bidCount) {
+}
@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record ImportError(long line, String message) {
+}
@@ -0,0 +1,7 @@
+package ch.bbcag.ebai.models;
+
+import java.util.List;
+
+// errors lists at most the first ebai.import.max-reported-errors failed lines, failed counts all of them
+public record ImportResult(long lines, long imported, long failed, List<ImportError> errors) {
+}
@@ -0,0 +1,34 @@
+package ch.bbcag.ebai.models;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record KeysetPage<T>(List<T> items, Integer nextCursor) {
+
+    public static final int MAX_LIMIT = 500;
+
+    // one row more than requested is fetched to find out whether there is a next page
+    public static Pageable pageable(int limit) {
+        return PageRequest.of(0, clamp(limit) + 1);
+    }
+
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, Integer> idOf) {
+        int pageSize = clamp(limit);
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new KeysetPage<>(items, idOf.apply(items.get(pageSize - 1)));
+    }
+
+    public static int after(Integer after) {
+        return after == null ? 0 : after;
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
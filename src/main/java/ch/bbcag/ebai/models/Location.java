@@ -1,5 +1,9 @@
 package ch.bbcag.ebai.models;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -8,6 +12,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "locations")
 public class Location {
 
     @Id
@@ -21,8 +27,14 @@ public class Location {
     private Integer plz;
 
     @OneToMany(mappedBy = "location", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "location-users")
     private Set<User> users = new HashSet<>();
 
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int version;
+
     public Integer getId() {
         return id;
     }
@@ -54,4 +66,12 @@ public class Location {
     public void setUsers(Set<User> users) {
         this.users = users;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record LocationSummary(Integer id, String name, Integer plz, long userCount, int version) {
+}
@@ -0,0 +1,19 @@
+package ch.bbcag.ebai.models;
+
+import java.util.Map;
+
+// values holds the applied fields of the patch, references by their id
+public record MergePatchResult(boolean updated, Map<String, Object> values) {
+
+    public boolean changed(String field) {
+        return values.containsKey(field);
+    }
+
+    public String text(String field) {
+        return (String) values.get(field);
+    }
+
+    public Integer number(String field) {
+        return (Integer) values.get(field);
+    }
+}
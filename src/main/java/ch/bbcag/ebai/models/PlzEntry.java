@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record PlzEntry(Integer id, Integer plz) {
+}
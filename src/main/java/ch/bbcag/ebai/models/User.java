@@ -1,6 +1,10 @@
 package ch.bbcag.ebai.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.jetbrains.annotations.NotNull;
 
 import javax.persistence.*;
@@ -9,6 +13,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
 
     @Id
@@ -24,12 +30,18 @@ public class User {
     @JsonBackReference
     private Location location;
 
+    // adverts and bids are not cached entities, a cached id list would be resolved with one select per element
     @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private Set<Advert> adverts = new HashSet<>();
 
     @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private Set<Bid> bids = new HashSet<>();
 
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int version;
+
     public Integer getId() {
         return id;
     }
@@ -69,4 +81,12 @@ public class User {
     public void setBids(Set<Bid> bids) {
         this.bids = bids;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,4 @@
+package ch.bbcag.ebai.models;
+
+public record UserSummary(Integer id, String name, Integer locationId, long advertCount, long bidCount) {
+}
@@ -1,12 +1,54 @@
 package ch.bbcag.ebai.repositories;
 
 import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.AdvertSummary;
+import ch.bbcag.ebai.models.NameEntry;
+import ch.bbcag.ebai.models.ParentEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface AdvertRepository extends CrudRepository<Advert, Integer> {
 
-    @Query("SELECT i FROM Advert i WHERE i.name LIKE CONCAT('%', :name, '%')")
-    Iterable<Advert> findByName(@Param("name") String name);
+    // scalar columns and counts only, listing never touches the lazy collections
+    String SUMMARY = "SELECT new ch.bbcag.ebai.models.AdvertSummary(i.id, i.name, i.user.id, " +
+            "(SELECT COUNT(b) FROM Bid b WHERE b.advert = i), (SELECT MAX(b.value) FROM Bid b WHERE b.advert = i)) FROM Advert i";
+
+    @Query(SUMMARY + " WHERE i.name LIKE CONCAT('%', :name, '%')")
+    Iterable<AdvertSummary> findByName(@Param("name") String name);
+
+    @Query(SUMMARY + " ORDER BY i.id")
+    List<AdvertSummary> findAllSummaries();
+
+    @Query(SUMMARY + " WHERE i.id IN :ids")
+    List<AdvertSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(SUMMARY + " WHERE i.id > :after ORDER BY i.id")
+    List<AdvertSummary> findAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Query(SUMMARY + " WHERE i.name LIKE CONCAT('%', :name, '%') AND i.id > :after ORDER BY i.id")
+    List<AdvertSummary> findByNameAfter(@Param("name") String name, @Param("after") Integer after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + " ORDER BY i.id")
+    Stream<AdvertSummary> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + " WHERE i.name LIKE CONCAT('%', :name, '%') ORDER BY i.id")
+    Stream<AdvertSummary> streamByName(@Param("name") String name);
+
+    @Query("SELECT new ch.bbcag.ebai.models.NameEntry(i.id, i.name) FROM Advert i")
+    List<NameEntry> findAllNames();
+
+    @Query("SELECT new ch.bbcag.ebai.models.ParentEntry(i.id, i.user.id) FROM Advert i")
+    List<ParentEntry> findAllUserIds();
 }
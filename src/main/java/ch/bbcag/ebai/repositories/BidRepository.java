@@ -1,12 +1,42 @@
 package ch.bbcag.ebai.repositories;
 
 import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.BidSnapshot;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface BidRepository extends CrudRepository<Bid, Integer> {
 
+    // scalar columns only, the eager advert and user are not selected for every bid
+    String SNAPSHOT = "SELECT new ch.bbcag.ebai.models.BidSnapshot(i.id, i.advert.id, i.user.id, i.value) FROM Bid i";
+
     @Query("SELECT i FROM Bid i WHERE i.value = :value")
     Iterable<Bid> findByValue(@Param("value") Integer value);
+
+    @Query(SNAPSHOT + " WHERE i.id = :id")
+    Optional<BidSnapshot> findSnapshotById(@Param("id") Integer id);
+
+    @Query("SELECT i FROM Bid i WHERE i.id > :after ORDER BY i.id")
+    List<Bid> findAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Query("SELECT i FROM Bid i WHERE i.value = :value AND i.id > :after ORDER BY i.id")
+    List<Bid> findByValueAfter(@Param("value") Integer value, @Param("after") Integer after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SNAPSHOT + " ORDER BY i.id")
+    Stream<BidSnapshot> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SNAPSHOT + " WHERE i.value = :value ORDER BY i.id")
+    Stream<BidSnapshot> streamByValue(@Param("value") Integer value);
 }
@@ -1,18 +1,57 @@
 package ch.bbcag.ebai.repositories;
 
 import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.LocationSummary;
+import ch.bbcag.ebai.models.PlzEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface LocationRepository extends CrudRepository<Location, Integer> {
 
-    @Query("SELECT i FROM Location i WHERE i.location LIKE CONCAT('%', :location, '%') ")
-    Iterable<Location> findByName(@Param("location") String location);
+    // scalar columns and counts only, listing never touches the lazy collections
+    String SUMMARY = "SELECT new ch.bbcag.ebai.models.LocationSummary(i.id, i.location, i.plz, " +
+            "(SELECT COUNT(u) FROM User u WHERE u.location = i), i.version) FROM Location i";
+
+    // locations change rarely, the cached results are dropped whenever a location or user is written
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SUMMARY + " WHERE i.location LIKE CONCAT('%', :location, '%') ")
+    Iterable<LocationSummary> findByName(@Param("location") String location);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SUMMARY + " WHERE i.location LIKE CONCAT('%', :location, '%') AND i.plz = :plz")
+    Iterable<LocationSummary> findByNameAndPlz(@Param("location") String location, @Param("plz") Integer plz);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(SUMMARY + " ORDER BY i.id")
+    List<LocationSummary> findAllSummaries();
+
+    @Query(SUMMARY + " WHERE i.id IN :ids ORDER BY i.plz, i.id")
+    List<LocationSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(SUMMARY + " WHERE i.id > :after ORDER BY i.id")
+    List<LocationSummary> findAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Query(SUMMARY + " WHERE i.location LIKE CONCAT('%', :location, '%') AND i.id > :after ORDER BY i.id")
+    List<LocationSummary> findByNameAfter(@Param("location") String location, @Param("after") Integer after, Pageable pageable);
+
+    @Query(SUMMARY + " WHERE i.location LIKE CONCAT('%', :location, '%') AND i.plz = :plz AND i.id > :after ORDER BY i.id")
+    List<LocationSummary> findByNameAndPlzAfter(@Param("location") String location, @Param("plz") Integer plz, @Param("after") Integer after, Pageable pageable);
 
-    @Query("SELECT i FROM Location i WHERE i.plz = :plz")
-    Iterable<Location> findByPlz(@Param("plz") Integer plz);
+    @Query("SELECT new ch.bbcag.ebai.models.PlzEntry(i.id, i.plz) FROM Location i WHERE i.plz IS NOT NULL ORDER BY i.plz, i.id")
+    List<PlzEntry> findAllPlzEntries();
 
-    @Query("SELECT i FROM Location i WHERE i.location LIKE CONCAT('%', :location, '%') AND i.plz = :plz")
-    Iterable<Location> findByNameAndPlz(@Param("location") String location, @Param("plz") Integer plz);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + " ORDER BY i.id")
+    Stream<LocationSummary> streamAll();
 }
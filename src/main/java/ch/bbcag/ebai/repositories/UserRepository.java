@@ -1,12 +1,54 @@
 package ch.bbcag.ebai.repositories;
 
+import ch.bbcag.ebai.models.NameEntry;
+import ch.bbcag.ebai.models.ParentEntry;
 import ch.bbcag.ebai.models.User;
+import ch.bbcag.ebai.models.UserSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface UserRepository extends CrudRepository<User, Integer> {
 
-    @Query("SELECT i FROM User i WHERE i.name LIKE CONCAT('%', :name, '%')")
-    Iterable<User> findByName(@Param("name") String name);
+    // scalar columns and counts only, listing never touches the lazy collections
+    String SUMMARY = "SELECT new ch.bbcag.ebai.models.UserSummary(i.id, i.name, i.location.id, " +
+            "(SELECT COUNT(a) FROM Advert a WHERE a.user = i), (SELECT COUNT(b) FROM Bid b WHERE b.user = i)) FROM User i";
+
+    @Query(SUMMARY + " WHERE i.name LIKE CONCAT('%', :name, '%')")
+    Iterable<UserSummary> findByName(@Param("name") String name);
+
+    @Query(SUMMARY + " ORDER BY i.id")
+    List<UserSummary> findAllSummaries();
+
+    @Query(SUMMARY + " WHERE i.id IN :ids")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(SUMMARY + " WHERE i.id > :after ORDER BY i.id")
+    List<UserSummary> findAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Query(SUMMARY + " WHERE i.name LIKE CONCAT('%', :name, '%') AND i.id > :after ORDER BY i.id")
+    List<UserSummary> findByNameAfter(@Param("name") String name, @Param("after") Integer after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + " ORDER BY i.id")
+    Stream<UserSummary> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + " WHERE i.name LIKE CONCAT('%', :name, '%') ORDER BY i.id")
+    Stream<UserSummary> streamByName(@Param("name") String name);
+
+    @Query("SELECT new ch.bbcag.ebai.models.NameEntry(i.id, i.name) FROM User i")
+    List<NameEntry> findAllNames();
+
+    @Query("SELECT new ch.bbcag.ebai.models.ParentEntry(i.id, i.location.id) FROM User i")
+    List<ParentEntry> findAllLocationIds();
 }
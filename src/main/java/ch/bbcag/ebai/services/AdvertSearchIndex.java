@@ -0,0 +1,131 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.NameEntry;
+import ch.bbcag.ebai.repositories.AdvertRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class AdvertSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    @Autowired
+    private AdvertRepository advertRepository;
+
+    @Value("${ebai.search.max-results}")
+    private int maxResults;
+
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void load() {
+        names.clear();
+        postings.clear();
+        for (NameEntry advert : advertRepository.findAllNames()) {
+            put(advert.id(), advert.name());
+        }
+    }
+
+    public synchronized void put(Integer id, String name) {
+        remove(id);
+        if (name == null) {
+            return;
+        }
+        String normalizedName = normalize(name);
+        names.put(id, normalizedName);
+        for (String gram : grams(normalizedName)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    public synchronized void remove(Integer id) {
+        String normalizedName = names.remove(id);
+        if (normalizedName == null) {
+            return;
+        }
+        for (String gram : grams(normalizedName)) {
+            postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // ids of the adverts whose name contains the query, best matches first
+    public List<Integer> search(String query) {
+        String normalizedQuery = normalize(query);
+        List<Integer> matches = new ArrayList<>();
+        for (Integer id : candidates(normalizedQuery)) {
+            String name = names.get(id);
+            // the postings only narrow the candidates down, the name decides
+            if (name != null && name.contains(normalizedQuery)) {
+                matches.add(id);
+            }
+        }
+        matches.sort(Comparator.<Integer>comparingInt(id -> rank(names.getOrDefault(id, ""), normalizedQuery))
+                .thenComparingInt(id -> names.getOrDefault(id, "").length())
+                .thenComparing(id -> id));
+        return matches.size() > maxResults ? new ArrayList<>(matches.subList(0, maxResults)) : matches;
+    }
+
+    private Collection<Integer> candidates(String normalizedQuery) {
+        if (normalizedQuery.length() < GRAM_LENGTH) {
+            return names.keySet();
+        }
+        List<Set<Integer>> gramPostings = new ArrayList<>();
+        for (String gram : grams(normalizedQuery)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            gramPostings.add(ids);
+        }
+        gramPostings.sort(Comparator.comparingInt(Set::size));
+        Set<Integer> candidates = new HashSet<>(gramPostings.get(0));
+        for (int i = 1; i < gramPostings.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(gramPostings.get(i));
+        }
+        return candidates;
+    }
+
+    private static int rank(String name, String query) {
+        if (name.equals(query)) {
+            return 0;
+        }
+        if (name.startsWith(query)) {
+            return 1;
+        }
+        int position = name.indexOf(query);
+        if (position > 0 && !Character.isLetterOrDigit(name.charAt(position - 1))) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static Set<String> grams(String normalizedText) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalizedText.length(); i++) {
+            grams.add(normalizedText.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
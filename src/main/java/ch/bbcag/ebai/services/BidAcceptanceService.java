@@ -0,0 +1,155 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.models.HighestBid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+@Service
+public class BidAcceptanceService {
+
+    @Autowired
+    private BidBatchWriter bidBatchWriter;
+
+    @Autowired
+    private HighestBidIndex highestBidIndex;
+
+    @Value("${ebai.bids.batch.timeout-ms}")
+    private long writeTimeoutMs;
+
+    // a fixed number of striped locks, so bids on different adverts rarely wait for each other and no lock outlives its advert
+    private static final int LOCK_STRIPES = 1024;
+
+    private final ReentrantLock[] advertLocks = new ReentrantLock[LOCK_STRIPES];
+
+    // accepted bids whose batch has not been committed yet; an entry is only changed under the lock of its advert
+    private final Map<Integer, List<BidSnapshot>> pendingBids = new ConcurrentHashMap<>();
+
+    public BidAcceptanceService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            advertLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean accept(Bid bid) {
+        Integer advertId = bid.getAdvert().getId();
+        ReentrantLock lock = lockOf(advertId);
+        BidSnapshot pendingBid = new BidSnapshot(null, advertId, bid.getUser().getId(), bid.getValue());
+        CompletableFuture<Integer> result;
+        lock.lock();
+        try {
+            Optional<HighestBid> highestBid = highestBidIndex.findByAdvertId(advertId);
+            if (highestBid.isPresent() && bid.getValue() <= highestBid.get().value()) {
+                return false;
+            }
+            // the index is updated before the commit so the next bid is already checked against this one
+            highestBidIndex.add(pendingBid);
+            pendingBids.computeIfAbsent(advertId, id -> new ArrayList<>()).add(pendingBid);
+            result = bidBatchWriter.submit(bid);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            bid.setId(await(result));
+            lock.lock();
+            try {
+                removePending(pendingBid);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        } catch (CompletionException e) {
+            lock.lock();
+            try {
+                removePending(pendingBid);
+                reloadLocked(advertId);
+            } finally {
+                lock.unlock();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // a bid still queued after the timeout is cancelled and never written; one the writer has already taken into a batch
+    // is committed with that batch, so its result is waited for instead of reporting a failure
+    private Integer await(CompletableFuture<Integer> result) {
+        try {
+            return result.get(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (result.cancel(false)) {
+                throw new CompletionException(e);
+            }
+            return result.join();
+        }
+    }
+
+    // a stored bid may only get a new value that would be accepted as a new bid, so the update is handed the value to beat
+    // and runs under the lock of the advert; the highest bid is rebuilt before the lock is released
+    public <T> T change(Integer advertId, Function<Integer, T> update) {
+        ReentrantLock lock = lockOf(advertId);
+        lock.lock();
+        try {
+            return update.apply(highestBidIndex.findByAdvertId(advertId).map(HighestBid::value).orElse(Integer.MIN_VALUE));
+        } finally {
+            try {
+                reloadLocked(advertId);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // rebuilds the highest bid from the committed bids without losing the accepted bids that are still being written
+    public void reloadHighestBid(Integer advertId) {
+        if (advertId == null) {
+            return;
+        }
+        ReentrantLock lock = lockOf(advertId);
+        lock.lock();
+        try {
+            reloadLocked(advertId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // a bid committed a moment ago is counted twice until its request has removed it from the pending bids
+    private void reloadLocked(Integer advertId) {
+        highestBidIndex.reload(advertId, pendingBids.getOrDefault(advertId, List.of()));
+    }
+
+    private void removePending(BidSnapshot pendingBid) {
+        pendingBids.computeIfPresent(pendingBid.advertId(), (id, bids) -> {
+            bids.remove(pendingBid);
+            return bids.isEmpty() ? null : bids;
+        });
+    }
+
+    private ReentrantLock lockOf(Integer advertId) {
+        return advertLocks[Math.floorMod(advertId.hashCode(), LOCK_STRIPES)];
+    }
+}
@@ -0,0 +1,202 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Bid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class BidBatchWriter {
+
+    private static final String INSERT_BID = "INSERT INTO bid (value, advert_id, user_id) VALUES (?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ebai.bids.batch.window-ms}")
+    private long windowMs;
+
+    @Value("${ebai.bids.batch.max-size}")
+    private int maxBatchSize;
+
+    private final BlockingQueue<PendingBid> pendingBids = new LinkedBlockingQueue<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writerThread = new Thread(this::run, "bid-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        failPendingBids();
+    }
+
+    // completes with the generated id once the batch containing the bid has been committed; the result can only be
+    // cancelled while the bid is still queued, once the writer has taken it into a batch it is written
+    public CompletableFuture<Integer> submit(Bid bid) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Bid writer is stopped"));
+        }
+        PendingBid pendingBid = new PendingBid(bid, new PendingResult());
+        pendingBids.add(pendingBid);
+        // the writer may have stopped between the check and the add, then nobody would take the bid
+        if (!running) {
+            failPendingBids();
+        }
+        return pendingBid.result();
+    }
+
+    private void run() {
+        try {
+            while (running || !pendingBids.isEmpty()) {
+                try {
+                    List<PendingBid> batch = nextBatch();
+                    if (!batch.isEmpty()) {
+                        write(batch);
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+            }
+        } finally {
+            // also reached when the thread dies, so no request waits for a writer that is gone
+            running = false;
+            failPendingBids();
+        }
+    }
+
+    private void failPendingBids() {
+        PendingBid pendingBid;
+        while ((pendingBid = pendingBids.poll()) != null) {
+            pendingBid.result().completeExceptionally(new IllegalStateException("Bid writer is stopped"));
+        }
+    }
+
+    private List<PendingBid> nextBatch() throws InterruptedException {
+        List<PendingBid> batch = new ArrayList<>();
+        PendingBid first = pendingBids.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        take(first, batch);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingBid next = remaining > 0 ? pendingBids.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                break;
+            }
+            take(next, batch);
+            List<PendingBid> drained = new ArrayList<>();
+            pendingBids.drainTo(drained, maxBatchSize - batch.size());
+            drained.forEach(pendingBid -> take(pendingBid, batch));
+        }
+        return batch;
+    }
+
+    // a bid whose request has already given up is dropped, the client must not get an error for a stored bid
+    private static void take(PendingBid pendingBid, List<PendingBid> batch) {
+        if (pendingBid.result().take()) {
+            batch.add(pendingBid);
+        }
+    }
+
+    private void write(List<PendingBid> batch) {
+        List<Integer> ids;
+        try {
+            ids = transactionTemplate.execute(status -> insert(batch));
+        } catch (DataAccessException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+            } else {
+                // retry one by one so a single invalid bid does not fail the whole batch
+                batch.forEach(pendingBid -> write(List.of(pendingBid)));
+            }
+            return;
+        } catch (RuntimeException e) {
+            batch.forEach(pendingBid -> pendingBid.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(ids.get(i));
+        }
+    }
+
+    private List<Integer> insert(List<PendingBid> batch) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            List<Integer> ids = new ArrayList<>(batch.size());
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BID, Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingBid pendingBid : batch) {
+                    Bid bid = pendingBid.bid();
+                    statement.setObject(1, bid.getValue(), Types.INTEGER);
+                    statement.setObject(2, bid.getAdvert() == null ? null : bid.getAdvert().getId(), Types.INTEGER);
+                    statement.setObject(3, bid.getUser() == null ? null : bid.getUser().getId(), Types.INTEGER);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+            }
+            // without an id per bid no bid of the batch can be reported, so the batch is rolled back and retried one by one
+            if (ids.size() != batch.size()) {
+                throw new IncorrectResultSizeDataAccessException("Generated keys do not match the inserted bids", batch.size(), ids.size());
+            }
+            return ids;
+        });
+    }
+
+    private record PendingBid(Bid bid, PendingResult result) {
+    }
+
+    private static final class PendingResult extends CompletableFuture<Integer> {
+
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return taken.compareAndSet(false, true) && super.cancel(mayInterruptIfRunning);
+        }
+
+        private boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+}
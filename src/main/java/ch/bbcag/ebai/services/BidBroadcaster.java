@@ -0,0 +1,192 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.BidSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class BidBroadcaster {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ebai.bids.stream.buffer-size}")
+    private int bufferSize;
+
+    @Value("${ebai.bids.stream.timeout-ms}")
+    private long timeoutMs;
+
+    @Value("${ebai.bids.stream.send-timeout-ms}")
+    private long sendTimeoutMs;
+
+    @Value("${ebai.bids.stream.sender-threads}")
+    private int senderThreads;
+
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private ExecutorService senders;
+
+    // a send blocks while the client is not reading, so the sends run on a fixed number of threads instead of the publisher's;
+    // a subscriber has at most one drain queued, and one that blocks a thread for longer than the send timeout is dropped
+    @PostConstruct
+    public void start() {
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "bid-stream-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        subscribers.values().forEach(advertSubscribers -> advertSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    public SseEmitter subscribe(Integer advertId) {
+        return subscribe(advertId, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(Integer advertId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(advertId, emitter);
+        // added inside compute, so an unsubscribe cannot drop the set in between
+        subscribers.compute(advertId, (id, advertSubscribers) -> {
+            Set<Subscriber> updatedSubscribers = advertSubscribers == null ? ConcurrentHashMap.newKeySet() : advertSubscribers;
+            updatedSubscribers.add(subscriber);
+            return updatedSubscribers;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    public void publish(BidSnapshot bid) {
+        Set<Subscriber> advertSubscribers = subscribers.get(bid.advertId());
+        if (advertSubscribers == null || advertSubscribers.isEmpty()) {
+            return;
+        }
+        // serialized once, every subscriber gets the same payload
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(bid);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Subscriber subscriber : advertSubscribers) {
+            subscriber.offer(payload);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.advertId, (id, advertSubscribers) -> {
+            advertSubscribers.remove(subscriber);
+            return advertSubscribers.isEmpty() ? null : advertSubscribers;
+        });
+    }
+
+    private class Subscriber {
+
+        private final Integer advertId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<String> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        // System.nanoTime() when the running send started, 0 while no send is running
+        private volatile long sendStartedAt;
+
+        private Subscriber(Integer advertId, SseEmitter emitter) {
+            this.advertId = advertId;
+            this.emitter = emitter;
+        }
+
+        private void offer(String payload) {
+            if (dropped.get()) {
+                return;
+            }
+            long startedAt = sendStartedAt;
+            if (startedAt != 0 && System.nanoTime() - startedAt > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+                drop();
+                return;
+            }
+            synchronized (buffer) {
+                // slow consumers lose the oldest bids, the newest one is always the most relevant
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                }
+                buffer.addLast(payload);
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            String payload;
+            while ((payload = next()) != null) {
+                sendStartedAt = System.nanoTime();
+                try {
+                    emitter.send(SseEmitter.event().name("bid").data(payload, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    sendStartedAt = 0;
+                }
+                // the emitter is locked while a send runs, so a dropped subscriber is completed here
+                if (dropped.get()) {
+                    emitter.complete();
+                    return;
+                }
+            }
+            draining.set(false);
+            if (hasNext()) {
+                scheduleDrain();
+            }
+        }
+
+        // a client that has not taken a bid within the send timeout stops receiving bids, it can subscribe again
+        private void drop() {
+            if (dropped.compareAndSet(false, true)) {
+                unsubscribe(this);
+                synchronized (buffer) {
+                    buffer.clear();
+                }
+            }
+        }
+
+        private String next() {
+            synchronized (buffer) {
+                return buffer.pollFirst();
+            }
+        }
+
+        private boolean hasNext() {
+            synchronized (buffer) {
+                return !buffer.isEmpty();
+            }
+        }
+    }
+}
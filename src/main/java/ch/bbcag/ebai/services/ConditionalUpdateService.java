@@ -0,0 +1,84 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// single statement updates that only apply while the row still has the version the client has seen, unlike save they need no select first
+@Service
+public class ConditionalUpdateService {
+
+    private static final String UPDATE_LOCATION = "UPDATE location SET location = ?, plz = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String UPDATE_USER = "UPDATE user SET name = ?, location_id = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String UPDATE_ADVERT = "UPDATE advert SET name = ?, user_id = ?, version = version + 1 WHERE id = ? AND version = ?";
+    // the highest bid of the previous advert could not be reloaded without a select, so a bid keeps its advert;
+    // its value either stays or has to beat the highest bid of the advert
+    private static final String UPDATE_BID = "UPDATE bid SET value = ?, user_id = ?, version = version + 1 " +
+            "WHERE id = ? AND advert_id = ? AND version = ? AND (value = ? OR ? > ?)";
+
+    // the ETag of an entity starts with its version, a bare version is accepted as well
+    private static final Pattern VERSION = Pattern.compile("^(?:W/)?\"?(\\d+)(?:\\.[^\"]*)?\"?$");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SecondLevelCaches secondLevelCaches;
+
+    public static Optional<Integer> versionOf(String ifMatch) {
+        Matcher matcher = VERSION.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Integer.parseInt(matcher.group(1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean updateLocation(Location location, int version) {
+        boolean updated = jdbcTemplate.update(UPDATE_LOCATION, location.getName(), location.getPlz(), location.getId(), version) == 1;
+        if (updated) {
+            secondLevelCaches.locationUpdated(location.getId());
+        }
+        return updated;
+    }
+
+    public boolean updateUser(User user, int version) {
+        boolean updated = jdbcTemplate.update(UPDATE_USER, user.getName(), idOf(user.getLocation()), user.getId(), version) == 1;
+        if (updated) {
+            secondLevelCaches.userUpdated(user.getId());
+        }
+        return updated;
+    }
+
+    public boolean updateAdvert(Advert advert, int version) {
+        return jdbcTemplate.update(UPDATE_ADVERT, advert.getName(), idOf(advert.getUser()), advert.getId(), version) == 1;
+    }
+
+    public boolean updateBid(Bid bid, int version, int valueToBeat) {
+        return jdbcTemplate.update(UPDATE_BID, bid.getValue(), idOf(bid.getUser()), bid.getId(), idOf(bid.getAdvert()), version,
+                bid.getValue(), bid.getValue(), valueToBeat) == 1;
+    }
+
+    private static Integer idOf(Location location) {
+        return location == null ? null : location.getId();
+    }
+
+    private static Integer idOf(User user) {
+        return user == null ? null : user.getId();
+    }
+
+    private static Integer idOf(Advert advert) {
+        return advert == null ? null : advert.getId();
+    }
+}
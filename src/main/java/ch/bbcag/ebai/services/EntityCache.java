@@ -0,0 +1,122 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.CacheStatistics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+public class EntityCache<T> {
+
+    private final String name;
+
+    private final Cache<Integer, T> cache;
+
+    private final Function<Integer, Optional<T>> loader;
+
+    private final List<ReverseKey<T>> reverseKeys = new CopyOnWriteArrayList<>();
+
+    public EntityCache(String name, long maximumSize, Duration expireAfterWrite, Function<Integer, Optional<T>> loader) {
+        this.name = name;
+        this.loader = loader;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .evictionListener((Integer id, T value, RemovalCause cause) -> unregister(id, value))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<T> findById(Integer id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        // missing ids are not cached, Caffeine does not store null values
+        return Optional.ofNullable(cache.get(id, key -> {
+            T value = loader.apply(key).orElse(null);
+            if (value != null) {
+                register(key, value);
+            }
+            return value;
+        }));
+    }
+
+    // the reverse keys are updated inside the compute of the entry, so a concurrent load of the same id cannot lose them
+    public void invalidate(Integer id) {
+        if (id != null) {
+            cache.asMap().computeIfPresent(id, (key, value) -> {
+                unregister(key, value);
+                return null;
+            });
+        }
+    }
+
+    // for entries whose serialized graph contains other entities; has to be set up before the first load
+    public ReverseKey<T> reverseKey(Function<T, Collection<Integer>> embeddedIds) {
+        ReverseKey<T> reverseKey = new ReverseKey<>(embeddedIds);
+        reverseKeys.add(reverseKey);
+        return reverseKey;
+    }
+
+    public void invalidateEmbedding(ReverseKey<T> reverseKey, Integer embeddedId) {
+        Set<Integer> ids = reverseKey.containerIds.get(embeddedId);
+        if (ids != null) {
+            List.copyOf(ids).forEach(this::invalidate);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        reverseKeys.forEach(reverseKey -> reverseKey.containerIds.clear());
+    }
+
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+
+    private void register(Integer id, T value) {
+        for (ReverseKey<T> reverseKey : reverseKeys) {
+            for (Integer embeddedId : reverseKey.embeddedIds.apply(value)) {
+                reverseKey.containerIds.compute(embeddedId, (key, ids) -> {
+                    Set<Integer> containerIds = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                    containerIds.add(id);
+                    return containerIds;
+                });
+            }
+        }
+    }
+
+    private void unregister(Integer id, T value) {
+        for (ReverseKey<T> reverseKey : reverseKeys) {
+            for (Integer embeddedId : reverseKey.embeddedIds.apply(value)) {
+                reverseKey.containerIds.computeIfPresent(embeddedId, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    // ids of embedded entities mapped to the ids of the entries embedding them
+    public static final class ReverseKey<T> {
+
+        private final Function<T, Collection<Integer>> embeddedIds;
+
+        private final Map<Integer, Set<Integer>> containerIds = new ConcurrentHashMap<>();
+
+        private ReverseKey(Function<T, Collection<Integer>> embeddedIds) {
+            this.embeddedIds = embeddedIds;
+        }
+    }
+}
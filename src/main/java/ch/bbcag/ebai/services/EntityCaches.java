@@ -0,0 +1,180 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.CacheStatistics;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.User;
+import ch.bbcag.ebai.repositories.AdvertRepository;
+import ch.bbcag.ebai.repositories.BidRepository;
+import ch.bbcag.ebai.repositories.LocationRepository;
+import ch.bbcag.ebai.repositories.UserRepository;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+// read-through caches for the findById endpoints; the cached entities carry the whole graph their JSON contains
+@Service
+public class EntityCaches {
+
+    @Autowired
+    private AdvertRepository advertRepository;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private SecondLevelCaches secondLevelCaches;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ebai.cache.maximum-size}")
+    private long maximumSize;
+
+    @Value("${ebai.cache.expire-after-write-seconds}")
+    private long expireAfterWriteSeconds;
+
+    private TransactionTemplate transactionTemplate;
+
+    private EntityCache<Advert> adverts;
+
+    private EntityCache<Bid> bids;
+
+    private EntityCache<User> users;
+
+    private EntityCache<Location> locations;
+
+    private EntityCache.ReverseKey<User> advertsOfUsers;
+
+    private EntityCache.ReverseKey<Location> usersOfLocations;
+
+    private EntityCache.ReverseKey<Location> advertsOfLocations;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        adverts = create("adverts", id -> advertRepository.findById(id).map(EntityCaches::initialize));
+        bids = create("bids", bidRepository::findById);
+        users = create("users", id -> userRepository.findById(id).map(EntityCaches::initialize));
+        locations = create("locations", id -> locationRepository.findById(id).map(EntityCaches::initialize));
+        advertsOfUsers = users.reverseKey(user -> idsOf(user.getAdverts(), Advert::getId));
+        usersOfLocations = locations.reverseKey(location -> idsOf(location.getUsers(), User::getId));
+        advertsOfLocations = locations.reverseKey(location -> location.getUsers().stream()
+                .flatMap(user -> user.getAdverts().stream())
+                .map(Advert::getId)
+                .toList());
+    }
+
+    public Optional<Advert> findAdvert(Integer id) {
+        return adverts.findById(id);
+    }
+
+    public Optional<Bid> findBid(Integer id) {
+        return bids.findById(id);
+    }
+
+    public Optional<User> findUser(Integer id) {
+        return users.findById(id);
+    }
+
+    public Optional<Location> findLocation(Integer id) {
+        return locations.findById(id);
+    }
+
+    // an advert shows up in its own entry, in the entry of its owner and in the entry of the owner's location
+    public void advertChanged(Integer advertId) {
+        adverts.invalidate(advertId);
+        responseCache.invalidate("/adverts/" + advertId);
+        users.invalidateEmbedding(advertsOfUsers, advertId);
+        locations.invalidateEmbedding(advertsOfLocations, advertId);
+    }
+
+    public void bidChanged(Integer bidId) {
+        bids.invalidate(bidId);
+    }
+
+    public void userChanged(Integer userId) {
+        users.invalidate(userId);
+        locations.invalidateEmbedding(usersOfLocations, userId);
+    }
+
+    // the location listing counts the users of each location, new and moved users come with locationChanged
+    public void userRemoved(Integer userId) {
+        userChanged(userId);
+        responseCache.invalidate("/locations");
+    }
+
+    public void locationChanged(Integer locationId) {
+        locations.invalidate(locationId);
+        secondLevelCaches.locationUsersChanged(locationId);
+        responseCache.invalidate("/locations");
+    }
+
+    // bulk writes like the import call these once per batch, every id is dropped once however many rows touched it
+    public void advertsChanged(Collection<Integer> advertIds) {
+        new HashSet<>(advertIds).forEach(this::advertChanged);
+    }
+
+    public void usersChanged(Collection<Integer> userIds) {
+        new HashSet<>(userIds).forEach(this::userChanged);
+    }
+
+    public void locationsChanged(Collection<Integer> locationIds) {
+        Set<Integer> distinctIds = new HashSet<>(locationIds);
+        distinctIds.forEach(locations::invalidate);
+        secondLevelCaches.locationUsersChanged(distinctIds);
+        responseCache.invalidate("/locations");
+    }
+
+    public List<CacheStatistics> statistics() {
+        return List.of(adverts.statistics(), bids.statistics(), users.statistics(), locations.statistics());
+    }
+
+    private <T> EntityCache<T> create(String name, Function<Integer, Optional<T>> finder) {
+        return new EntityCache<>(name, maximumSize, Duration.ofSeconds(expireAfterWriteSeconds),
+                id -> transactionTemplate.execute(status -> finder.apply(id)));
+    }
+
+    private static Advert initialize(Advert advert) {
+        Hibernate.initialize(advert.getBids());
+        return advert;
+    }
+
+    private static User initialize(User user) {
+        user.getAdverts().forEach(EntityCaches::initialize);
+        Hibernate.initialize(user.getBids());
+        return user;
+    }
+
+    private static Location initialize(Location location) {
+        location.getUsers().forEach(EntityCaches::initialize);
+        return location;
+    }
+
+    private static <T> List<Integer> idsOf(Collection<T> entities, Function<T, Integer> idOf) {
+        return entities.stream().map(idOf).toList();
+    }
+}
@@ -0,0 +1,168 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.config.CursorFetchDataSource;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+// copies rows from a fetch-size limited result set straight to the output, without entities or a persistence context.
+// The rows are read on a connection of the cursor pool, there the fetch size turns into a server-side cursor.
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final Map<String, Export> EXPORTS = Map.of(
+            "adverts", new Export("SELECT id, name, user_id FROM advert WHERE id > ? ORDER BY id", List.of("id", "name", "userId")),
+            "bids", new Export("SELECT id, value, advert_id, user_id FROM bid WHERE id > ? ORDER BY id", List.of("id", "value", "advertId", "userId")),
+            "users", new Export("SELECT id, name, location_id FROM user WHERE id > ? ORDER BY id", List.of("id", "name", "locationId")),
+            "locations", new Export("SELECT id, location, plz FROM location WHERE id > ? ORDER BY id", List.of("id", "name", "plz")));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ebai.export.fetch-size}")
+    private int fetchSize;
+
+    public boolean canExport(String resource) {
+        return EXPORTS.containsKey(resource);
+    }
+
+    // rows with an id greater than since, in id order, so the last exported id can be passed as since next time
+    public void export(String resource, Format format, int since, OutputStream outputStream) throws IOException {
+        Export export = EXPORTS.get(resource);
+        if (export == null) {
+            throw new IllegalArgumentException("Resource " + resource + " can not be exported");
+        }
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(outputStream, export.fields()) : new NdjsonRowWriter(outputStream, export.fields());
+        try (CursorFetchDataSource.Scope cursorFetch = CursorFetchDataSource.cursorFetch()) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(export.sql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setInt(1, since);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                try {
+                    rowWriter.write(resultSet);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rowWriter.finish();
+    }
+
+    private record Export(String sql, List<String> fields) {
+    }
+
+    private interface RowWriter {
+
+        void write(ResultSet resultSet) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private final List<String> fields;
+
+        private NdjsonRowWriter(OutputStream outputStream, List<String> fields) throws IOException {
+            // lines are separated by writeRaw, not by the default space between root values
+            this.generator = objectMapper.getFactory().createGenerator(outputStream).setRootValueSeparator(null);
+            this.fields = fields;
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < fields.size(); i++) {
+                generator.writeFieldName(fields.get(i));
+                Object value = resultSet.getObject(i + 1);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.longValue());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    // RFC 4180: a header line, fields with separators, quotes or line breaks are quoted
+    private static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final int columns;
+
+        private CsvRowWriter(OutputStream outputStream, List<String> fields) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            this.columns = fields.size();
+            writer.write(String.join(",", fields));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws SQLException, IOException {
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = resultSet.getObject(i);
+                if (value instanceof String text) {
+                    writeText(text);
+                } else if (value != null) {
+                    writer.write(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeText(String text) throws IOException {
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
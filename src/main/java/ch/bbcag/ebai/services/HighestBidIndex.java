@@ -0,0 +1,78 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.models.HighestBid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class HighestBidIndex {
+
+    // the maxima are aggregated in the database, only the leading bids of each advert are transferred;
+    // ties come as several rows ordered by id, the earlier bid keeps the lead
+    private static final String SELECT_HIGHEST_BIDS = "SELECT b.advert_id, b.value, b.user_id, m.bid_count FROM bid b "
+            + "JOIN (SELECT advert_id, MAX(value) AS max_value, COUNT(*) AS bid_count FROM bid GROUP BY advert_id) m "
+            + "ON m.advert_id = b.advert_id AND m.max_value = b.value ORDER BY b.id";
+    private static final String SELECT_HIGHEST_BIDS_BY_ADVERT_ID = "SELECT b.advert_id, b.value, b.user_id, m.bid_count FROM bid b "
+            + "JOIN (SELECT advert_id, MAX(value) AS max_value, COUNT(*) AS bid_count FROM bid WHERE advert_id = ? GROUP BY advert_id) m "
+            + "ON m.advert_id = b.advert_id AND m.max_value = b.value ORDER BY b.id";
+
+    private static final RowMapper<HighestBid> HIGHEST_BID = (resultSet, row) -> new HighestBid(
+            resultSet.getInt("advert_id"), resultSet.getInt("value"), resultSet.getInt("user_id"), resultSet.getLong("bid_count"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, HighestBid> highestBids = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        highestBids.clear();
+        for (HighestBid highestBid : jdbcTemplate.query(SELECT_HIGHEST_BIDS, HIGHEST_BID)) {
+            highestBids.putIfAbsent(highestBid.advertId(), highestBid);
+        }
+    }
+
+    public Optional<HighestBid> findByAdvertId(Integer advertId) {
+        return Optional.ofNullable(highestBids.get(advertId));
+    }
+
+    public void add(BidSnapshot bid) {
+        highestBids.merge(bid.advertId(), new HighestBid(bid.advertId(), bid.value(), bid.userId(), 1), HighestBidIndex::combine);
+    }
+
+    // the pending bids are accepted but not committed yet, so the database does not know them
+    public void reload(Integer advertId, Collection<BidSnapshot> pendingBids) {
+        List<HighestBid> leadingBids = jdbcTemplate.query(SELECT_HIGHEST_BIDS_BY_ADVERT_ID, HIGHEST_BID, advertId);
+        highestBids.compute(advertId, (id, current) -> {
+            HighestBid highestBid = leadingBids.isEmpty() ? null : leadingBids.get(0);
+            for (BidSnapshot bid : pendingBids) {
+                HighestBid pendingBid = new HighestBid(bid.advertId(), bid.value(), bid.userId(), 1);
+                highestBid = highestBid == null ? pendingBid : combine(highestBid, pendingBid);
+            }
+            return highestBid;
+        });
+    }
+
+    public void remove(Integer advertId) {
+        highestBids.remove(advertId);
+    }
+
+    // the earlier bid keeps the lead on equal values
+    private static HighestBid combine(HighestBid current, HighestBid added) {
+        long bidCount = current.bidCount() + added.bidCount();
+        if (added.value() > current.value()) {
+            return new HighestBid(current.advertId(), added.value(), added.userId(), bidCount);
+        }
+        return new HighestBid(current.advertId(), current.value(), current.userId(), bidCount);
+    }
+}
@@ -0,0 +1,341 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.models.ImportError;
+import ch.bbcag.ebai.models.ImportResult;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// reads one record per line and inserts them in batches, so memory stays the same whatever the size of the input
+@Service
+public class ImportService {
+
+    private static final String INSERT_LOCATION = "INSERT INTO location (location, plz) VALUES (?, ?)";
+    private static final String INSERT_USER = "INSERT INTO user (name, location_id) VALUES (?, ?)";
+    private static final String INSERT_ADVERT = "INSERT INTO advert (name, user_id) VALUES (?, ?)";
+    private static final String INSERT_BID = "INSERT INTO bid (value, advert_id, user_id) VALUES (?, ?, ?)";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AdvertSearchIndex advertSearchIndex;
+
+    @Autowired
+    private NameSuggestService nameSuggestService;
+
+    @Autowired
+    private HighestBidIndex highestBidIndex;
+
+    @Autowired
+    private PlzIndex plzIndex;
+
+    @Autowired
+    private RegionIndex regionIndex;
+
+    @Autowired
+    private EntityCaches entityCaches;
+
+    @Value("${ebai.import.batch-size}")
+    private int batchSize;
+
+    @Value("${ebai.import.max-record-bytes}")
+    private int maxRecordBytes;
+
+    @Value("${ebai.import.max-reported-errors}")
+    private int maxReportedErrors;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportResult importLocations(InputStream input) throws IOException {
+        return importRecords(input, Location.class, INSERT_LOCATION,
+                location -> null,
+                location -> new Object[]{location.getName(), location.getPlz()},
+                (location, id) -> plzIndex.put(id, location.getPlz()),
+                (locations, ids) -> entityCaches.locationsChanged(ids));
+    }
+
+    // new rows have no cache entries yet, only the entries of the rows they are added to are dropped
+    public ImportResult importUsers(InputStream input) throws IOException {
+        return importRecords(input, User.class, INSERT_USER,
+                user -> user.getLocation() == null || user.getLocation().getId() == null ? "location.id is required" : null,
+                user -> new Object[]{user.getName(), user.getLocation().getId()},
+                (user, id) -> {
+                    nameSuggestService.putUser(id, user.getName());
+                    regionIndex.putUser(id, user.getLocation().getId());
+                },
+                (users, ids) -> entityCaches.locationsChanged(idsOf(users, user -> user.getLocation().getId())));
+    }
+
+    public ImportResult importAdverts(InputStream input) throws IOException {
+        return importRecords(input, Advert.class, INSERT_ADVERT,
+                advert -> advert.getUser() == null || advert.getUser().getId() == null ? "user.id is required" : null,
+                advert -> new Object[]{advert.getName(), advert.getUser().getId()},
+                (advert, id) -> {
+                    advertSearchIndex.put(id, advert.getName());
+                    nameSuggestService.putAdvert(id, advert.getName());
+                    regionIndex.putAdvert(id, advert.getUser().getId());
+                },
+                (adverts, ids) -> entityCaches.usersChanged(idsOf(adverts, advert -> advert.getUser().getId())));
+    }
+
+    // imported bids are historic, so they are neither checked against the highest bid nor broadcast
+    public ImportResult importBids(InputStream input) throws IOException {
+        return importRecords(input, Bid.class, INSERT_BID,
+                bid -> bid.getAdvert() == null || bid.getAdvert().getId() == null || bid.getUser() == null || bid.getUser().getId() == null
+                        ? "advert.id and user.id are required" : null,
+                bid -> new Object[]{bid.getValue(), bid.getAdvert().getId(), bid.getUser().getId()},
+                (bid, id) -> highestBidIndex.add(new BidSnapshot(id, bid.getAdvert().getId(), bid.getUser().getId(), bid.getValue())),
+                (bids, ids) -> {
+                    entityCaches.advertsChanged(idsOf(bids, bid -> bid.getAdvert().getId()));
+                    entityCaches.usersChanged(idsOf(bids, bid -> bid.getUser().getId()));
+                });
+    }
+
+    private <T> ImportResult importRecords(InputStream input, Class<T> type, String sql, Function<T, String> checkReferences,
+                                           Function<T, Object[]> columns, BiConsumer<T, Integer> indexed,
+                                           BiConsumer<List<T>, List<Integer>> batchImported) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        Progress progress = new Progress();
+        List<PendingRecord<T>> batch = new ArrayList<>(batchSize);
+        ImportTarget<T> target = new ImportTarget<>(sql, columns, indexed, batchImported);
+        RecordReader records = new RecordReader(input, maxRecordBytes);
+        while (records.next()) {
+            progress.lines++;
+            if (records.tooLong) {
+                progress.failed(progress.lines, "Record is longer than " + maxRecordBytes + " bytes");
+                continue;
+            }
+            if (records.isBlank()) {
+                continue;
+            }
+            T record;
+            try {
+                // jackson parses the utf-8 bytes directly, the line is never decoded into a string
+                record = reader.readValue(records.bytes, 0, records.length);
+            } catch (JsonProcessingException e) {
+                progress.failed(progress.lines, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            String error = validate(record, checkReferences);
+            if (error != null) {
+                progress.failed(progress.lines, error);
+                continue;
+            }
+            batch.add(new PendingRecord<>(progress.lines, record));
+            if (batch.size() >= batchSize) {
+                write(batch, target, progress);
+                batch.clear();
+            }
+        }
+        write(batch, target, progress);
+        return new ImportResult(progress.lines, progress.imported, progress.failed, progress.errors);
+    }
+
+    private <T> String validate(T record, Function<T, String> checkReferences) {
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        return checkReferences.apply(record);
+    }
+
+    private <T> void write(List<PendingRecord<T>> batch, ImportTarget<T> target, Progress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Integer> ids;
+        try {
+            ids = transactionTemplate.execute(status -> insert(batch, target.sql(), target.columns()));
+        } catch (DataAccessException e) {
+            if (batch.size() == 1) {
+                progress.failed(batch.get(0).line(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            } else {
+                // retry one by one so a single bad reference does not fail the whole batch
+                batch.forEach(pendingRecord -> write(List.of(pendingRecord), target, progress));
+            }
+            return;
+        }
+        List<T> records = new ArrayList<>(batch.size());
+        List<Integer> importedIds = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            T record = batch.get(i).record();
+            records.add(record);
+            // a driver may hand back fewer generated keys than rows, those rows are written but cannot be indexed
+            if (i < ids.size()) {
+                importedIds.add(ids.get(i));
+                target.indexed().accept(record, ids.get(i));
+            }
+        }
+        target.batchImported().accept(records, importedIds);
+        progress.imported += batch.size();
+    }
+
+    private <T> List<Integer> insert(List<PendingRecord<T>> batch, String sql, Function<T, Object[]> columns) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            List<Integer> ids = new ArrayList<>(batch.size());
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingRecord<T> pendingRecord : batch) {
+                    Object[] values = columns.apply(pendingRecord.record());
+                    for (int i = 0; i < values.length; i++) {
+                        if (values[i] == null) {
+                            statement.setNull(i + 1, Types.INTEGER);
+                        } else {
+                            statement.setObject(i + 1, values[i]);
+                        }
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+
+    private static <T> List<Integer> idsOf(List<T> records, Function<T, Integer> idOf) {
+        return records.stream().map(idOf).toList();
+    }
+
+    private record PendingRecord<T>(long line, T record) {
+    }
+
+    private record ImportTarget<T>(String sql, Function<T, Object[]> columns, BiConsumer<T, Integer> indexed,
+                                   BiConsumer<List<T>, List<Integer>> batchImported) {
+    }
+
+    // splits the input at line breaks without decoding it; a record over the limit is skipped up to the next line break
+    private static class RecordReader {
+
+        private final InputStream input;
+        private final int maxRecordBytes;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private byte[] bytes = new byte[1024];
+        private int length;
+        private boolean tooLong;
+
+        private RecordReader(InputStream input, int maxRecordBytes) {
+            this.input = input;
+            this.maxRecordBytes = maxRecordBytes;
+        }
+
+        private boolean next() throws IOException {
+            length = 0;
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(input.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return read;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    return true;
+                }
+            }
+        }
+
+        private boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void append(int from, int to) {
+            int count = to - from;
+            if (tooLong || count == 0) {
+                return;
+            }
+            if (length + count > maxRecordBytes) {
+                tooLong = true;
+                return;
+            }
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.min(Math.max(bytes.length * 2, length + count), maxRecordBytes));
+            }
+            System.arraycopy(buffer, from, bytes, length, count);
+            length += count;
+        }
+    }
+
+    private class Progress {
+
+        private final List<ImportError> errors = new ArrayList<>();
+        private long lines;
+        private long imported;
+        private long failed;
+
+        private void failed(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportError(line, message));
+            }
+        }
+    }
+}
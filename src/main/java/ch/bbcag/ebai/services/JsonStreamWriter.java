@@ -0,0 +1,65 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.config.CursorFetchDataSource;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@Service
+public class JsonStreamWriter {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ebai.streaming.clear-interval}")
+    private int clearInterval;
+
+    // writes the rows as a JSON array while they are read, so only clearInterval entities are ever held at once
+    public <T> void writeArray(Supplier<Stream<T>> query, OutputStream outputStream) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        // the fetch size hints of the stream queries only turn into a cursor on a connection of the cursor pool
+        try (CursorFetchDataSource.Scope cursorFetch = CursorFetchDataSource.cursorFetch()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get();
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                    generator.writeStartArray();
+                    Iterator<T> iterator = rows.iterator();
+                    int written = 0;
+                    while (iterator.hasNext()) {
+                        writer.writeValue(generator, iterator.next());
+                        if (++written % clearInterval == 0) {
+                            entityManager.clear();
+                            generator.flush();
+                        }
+                    }
+                    generator.writeEndArray();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.MergePatchResult;
+import ch.bbcag.ebai.models.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// turns a JSON merge patch into one UPDATE of the patched columns, the entity is never loaded;
+// throws IllegalArgumentException for fields that cannot be patched or values the entity would not accept
+@Service
+public class MergePatchService {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private static final Map<String, PatchColumn> LOCATION_COLUMNS = Map.of(
+            "name", new PatchColumn("location", "location", ColumnType.TEXT, false),
+            "plz", new PatchColumn("plz", "plz", ColumnType.NUMBER, true));
+    private static final Map<String, PatchColumn> USER_COLUMNS = Map.of(
+            "name", new PatchColumn("name", "name", ColumnType.TEXT, false),
+            "location", new PatchColumn("location_id", "location", ColumnType.REFERENCE, false));
+    private static final Map<String, PatchColumn> ADVERT_COLUMNS = Map.of(
+            "name", new PatchColumn("name", "name", ColumnType.TEXT, false),
+            "user", new PatchColumn("user_id", "user", ColumnType.REFERENCE, false));
+    // like the conditional update, a bid keeps its advert
+    private static final Map<String, PatchColumn> BID_COLUMNS = Map.of(
+            "value", new PatchColumn("value", "value", ColumnType.NUMBER, false),
+            "user", new PatchColumn("user_id", "user", ColumnType.REFERENCE, false));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private SecondLevelCaches secondLevelCaches;
+
+    // an empty patch changes nothing, so it is answered without an update
+    public static boolean isEmpty(JsonNode patch) {
+        return patch != null && patch.isObject() && patch.isEmpty();
+    }
+
+    public MergePatchResult patchLocation(Integer id, JsonNode patch, Integer version) {
+        MergePatchResult result = patch("location", Location.class, LOCATION_COLUMNS, id, patch, version, null);
+        if (result.updated()) {
+            secondLevelCaches.locationUpdated(id);
+        }
+        return result;
+    }
+
+    public MergePatchResult patchUser(Integer id, JsonNode patch, Integer version) {
+        MergePatchResult result = patch("user", User.class, USER_COLUMNS, id, patch, version, null);
+        if (result.updated()) {
+            secondLevelCaches.userUpdated(id);
+        }
+        return result;
+    }
+
+    public MergePatchResult patchAdvert(Integer id, JsonNode patch, Integer version) {
+        return patch("advert", Advert.class, ADVERT_COLUMNS, id, patch, version, null);
+    }
+
+    // a patched value either stays or has to beat the highest bid of the advert, like a new bid
+    public MergePatchResult patchBid(Integer id, JsonNode patch, Integer version, int valueToBeat) {
+        return patch("bid", Bid.class, BID_COLUMNS, id, patch, version, new MustBeat("value", "value", valueToBeat));
+    }
+
+    // the version is only checked when the client sent one, it is raised in any case
+    private MergePatchResult patch(String table, Class<?> type, Map<String, PatchColumn> columns, Integer id, JsonNode patch, Integer version,
+                                   MustBeat mustBeat) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("A merge patch must be a JSON object");
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        List<Object> arguments = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            PatchColumn column = columns.get(field.getKey());
+            if (column == null) {
+                throw new IllegalArgumentException(field.getKey() + " cannot be patched");
+            }
+            Object value = column.read(field.getKey(), field.getValue());
+            if (value != null && column.type() != ColumnType.REFERENCE) {
+                validate(type, column.property(), field.getKey(), value);
+            }
+            values.put(field.getKey(), value);
+            sql.append(column.name()).append(" = ?, ");
+            arguments.add(value);
+        }
+        sql.append("version = version + 1 WHERE id = ?");
+        arguments.add(id);
+        if (version != null) {
+            sql.append(" AND version = ?");
+            arguments.add(version);
+        }
+        if (mustBeat != null && values.containsKey(mustBeat.field())) {
+            sql.append(" AND (").append(mustBeat.column()).append(" = ? OR ? > ?)");
+            arguments.add(values.get(mustBeat.field()));
+            arguments.add(values.get(mustBeat.field()));
+            arguments.add(mustBeat.value());
+        }
+        boolean updated = jdbcTemplate.update(sql.toString(), arguments.toArray()) == 1;
+        return new MergePatchResult(updated, values);
+    }
+
+    private <T> void validate(Class<T> type, String property, String field, Object value) {
+        Set<ConstraintViolation<T>> violations = validator.validateValue(type, property, value);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> field + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private enum ColumnType {
+        TEXT, NUMBER, REFERENCE
+    }
+
+    private record MustBeat(String field, String column, int value) {
+    }
+
+    private record PatchColumn(String name, String property, ColumnType type, boolean nullable) {
+
+        // null removes the value in a merge patch; numbers may be quoted and references are given like in the entity JSON
+        private Object read(String field, JsonNode value) {
+            if (value.isNull()) {
+                if (!nullable) {
+                    throw new IllegalArgumentException(field + " cannot be removed");
+                }
+                return null;
+            }
+            return switch (type) {
+                case TEXT -> {
+                    if (!value.isTextual()) {
+                        throw new IllegalArgumentException(field + " must be a string");
+                    }
+                    yield value.textValue();
+                }
+                case NUMBER -> integer(value, field + " must be an integer");
+                case REFERENCE -> {
+                    if (!value.isObject() || value.size() != 1 || !value.has("id")) {
+                        throw new IllegalArgumentException(field + " must be given as {\"id\": <id>}");
+                    }
+                    yield integer(value.get("id"), field + " must be given as {\"id\": <id>}");
+                }
+            };
+        }
+
+        private static Integer integer(JsonNode value, String message) {
+            if (value.isIntegralNumber() && value.canConvertToInt()) {
+                return value.intValue();
+            }
+            if (value.isTextual()) {
+                try {
+                    return Integer.parseInt(value.textValue());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(message);
+                }
+            }
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.NameEntry;
+import ch.bbcag.ebai.repositories.AdvertRepository;
+import ch.bbcag.ebai.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+@Service
+public class NameSuggestService {
+
+    @Autowired
+    private AdvertRepository advertRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${ebai.suggest.max-results}")
+    private int maxResults;
+
+    private final NameTrie advertNames = new NameTrie();
+
+    private final NameTrie userNames = new NameTrie();
+
+    @PostConstruct
+    public void load() {
+        advertNames.clear();
+        for (NameEntry advert : advertRepository.findAllNames()) {
+            advertNames.put(advert.id(), advert.name());
+        }
+        userNames.clear();
+        for (NameEntry user : userRepository.findAllNames()) {
+            userNames.put(user.id(), user.name());
+        }
+    }
+
+    public List<String> suggestAdverts(String prefix, Integer limit) {
+        return advertNames.complete(prefix, limitOf(limit));
+    }
+
+    public List<String> suggestUsers(String prefix, Integer limit) {
+        return userNames.complete(prefix, limitOf(limit));
+    }
+
+    public void putAdvert(Integer id, String name) {
+        advertNames.put(id, name);
+    }
+
+    public void removeAdvert(Integer id) {
+        advertNames.remove(id);
+    }
+
+    public void putUser(Integer id, String name) {
+        userNames.put(id, name);
+    }
+
+    public void removeUser(Integer id) {
+        userNames.remove(id);
+    }
+
+    private int limitOf(Integer limit) {
+        return limit == null ? maxResults : Math.max(1, Math.min(limit, maxResults));
+    }
+}
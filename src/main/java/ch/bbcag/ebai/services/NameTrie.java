@@ -0,0 +1,253 @@
+package ch.bbcag.ebai.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// case-insensitive radix tree over names: a chain of nodes with a single child is kept as one node with a longer label,
+// children are kept in sorted arrays instead of maps and every name is stored once, at the node it ends in
+public class NameTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+    private static final String[] NO_NAMES = new String[0];
+
+    private final Node root = new Node("", null);
+
+    // the node the name of an id ends in, so a rename or remove does not need the old name
+    private final Map<Integer, Node> nodesById = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(Integer id, String name) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (name == null || name.isBlank()) {
+                return;
+            }
+            Node node = insert(normalize(name));
+            node.add(id, name);
+            nodesById.put(id, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            nodesById.clear();
+            root.keys = NO_KEYS;
+            root.children = NO_CHILDREN;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the top names are the first ones in case-insensitive alphabetical order, there is no ranking by popularity
+    public List<String> complete(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            String key = normalize(prefix);
+            Node node = root;
+            int matched = 0;
+            while (matched < key.length()) {
+                node = node.child(key.charAt(matched));
+                if (node == null) {
+                    return List.of();
+                }
+                // the prefix may end inside the label, then every name below still starts with it
+                int length = Math.min(node.label.length(), key.length() - matched);
+                if (!node.label.regionMatches(0, key, matched, length)) {
+                    return List.of();
+                }
+                matched += length;
+            }
+            List<String> names = new ArrayList<>(Math.min(limit, 16));
+            collect(node, names, limit);
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Node insert(String key) {
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            char first = key.charAt(matched);
+            Node child = node.child(first);
+            if (child == null) {
+                return node.addChild(new Node(key.substring(matched), node));
+            }
+            int common = commonPrefixLength(child.label, key, matched);
+            if (common < child.label.length()) {
+                // the key leaves the label in the middle, so the label is split at that point
+                Node split = new Node(child.label.substring(0, common), node);
+                child.label = child.label.substring(common);
+                child.parent = split;
+                split.keys = new char[]{child.label.charAt(0)};
+                split.children = new Node[]{child};
+                node.replaceChild(first, split);
+                child = split;
+            }
+            node = child;
+            matched += common;
+        }
+        return node;
+    }
+
+    private void removeLocked(Integer id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return;
+        }
+        node.remove(id);
+        // prune the branch that no longer leads to any name
+        while (node != root && node.isEmpty() && node.children.length == 0) {
+            Node parent = node.parent;
+            parent.removeChild(node.label.charAt(0));
+            node = parent;
+        }
+        // a node left with one child and no name of its own is merged into that child
+        if (node != root && node.isEmpty() && node.children.length == 1) {
+            Node child = node.children[0];
+            child.label = node.label + child.label;
+            child.parent = node.parent;
+            node.parent.replaceChild(child.label.charAt(0), child);
+        }
+    }
+
+    private static void collect(Node node, List<String> names, int limit) {
+        if (names.size() >= limit) {
+            return;
+        }
+        if (!node.isEmpty()) {
+            names.add(node.displayName());
+        }
+        for (Node child : node.children) {
+            if (names.size() >= limit) {
+                return;
+            }
+            collect(child, names, limit);
+        }
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int common = 0;
+        while (common < length && label.charAt(common) == key.charAt(offset + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Node {
+
+        // the normalized characters between the parent and this node
+        private String label;
+        private Node parent;
+        // first character of the label of every child
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        // ids ending here with their spelling in insertion order; the oldest remaining spelling is shown
+        private int[] ids = NO_IDS;
+        private String[] names = NO_NAMES;
+
+        private Node(String label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        private void add(int id, String name) {
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            names = Arrays.copyOf(names, names.length + 1);
+            ids[ids.length - 1] = id;
+            names[names.length - 1] = name;
+        }
+
+        private void remove(int id) {
+            for (int index = 0; index < ids.length; index++) {
+                if (ids[index] == id) {
+                    int[] newIds = new int[ids.length - 1];
+                    String[] newNames = new String[names.length - 1];
+                    System.arraycopy(ids, 0, newIds, 0, index);
+                    System.arraycopy(names, 0, newNames, 0, index);
+                    System.arraycopy(ids, index + 1, newIds, index, ids.length - index - 1);
+                    System.arraycopy(names, index + 1, newNames, index, names.length - index - 1);
+                    ids = newIds.length == 0 ? NO_IDS : newIds;
+                    names = newNames.length == 0 ? NO_NAMES : newNames;
+                    return;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return ids.length == 0;
+        }
+
+        private String displayName() {
+            return names[0];
+        }
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(Node child) {
+            char key = child.label.charAt(0);
+            int insertAt = -Arrays.binarySearch(keys, key) - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private void replaceChild(char key, Node child) {
+            children[Arrays.binarySearch(keys, key)] = child;
+        }
+
+        private void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.PlzEntry;
+import ch.bbcag.ebai.repositories.LocationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// location ids sorted by plz in two parallel int arrays; readers never lock, writers swap in a modified copy
+@Service
+public class PlzIndex {
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(new int[0], new int[0]);
+
+    @PostConstruct
+    public synchronized void load() {
+        List<PlzEntry> entries = locationRepository.findAllPlzEntries();
+        int[] plz = new int[entries.size()];
+        int[] ids = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            plz[i] = entries.get(i).plz();
+            ids[i] = entries.get(i).id();
+        }
+        snapshot = new Snapshot(plz, ids);
+    }
+
+    public int[] findIdsByPlz(int plz) {
+        return findIdsByPlzRange(plz, plz);
+    }
+
+    public int[] findIdsByPlzRange(int plzFrom, int plzTo) {
+        Snapshot current = snapshot;
+        int from = current.lowerBound(plzFrom, Integer.MIN_VALUE);
+        int to = current.lowerBound(plzTo, Integer.MAX_VALUE);
+        if (to < current.plz.length && current.plz[to] == plzTo) {
+            to++;
+        }
+        return from < to ? Arrays.copyOfRange(current.ids, from, to) : new int[0];
+    }
+
+    // ids above after in ascending order, at most limit of them; the ids of every plz are already sorted, so the plz of the
+    // range are merged and the merge stops after limit ids
+    public int[] findPageByPlzRange(int plzFrom, int plzTo, int after, int limit) {
+        Snapshot current = snapshot;
+        int end = current.lowerBound(plzTo, Integer.MAX_VALUE);
+        if (end < current.plz.length && current.plz[end] == plzTo) {
+            end++;
+        }
+        // every cursor is {position of the next id, end of its plz}
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Comparator.comparingInt(cursor -> current.ids[cursor[0]]));
+        for (int start = current.lowerBound(plzFrom, Integer.MIN_VALUE); start < end; ) {
+            int plzEnd = current.lowerBound(current.plz[start], Integer.MAX_VALUE);
+            if (plzEnd < end && current.plz[plzEnd] == current.plz[start]) {
+                plzEnd++;
+            }
+            int next = current.lowerBound(current.plz[start], after);
+            if (next < plzEnd && current.ids[next] == after) {
+                next++;
+            }
+            if (next < plzEnd) {
+                cursors.add(new int[]{next, plzEnd});
+            }
+            start = plzEnd;
+        }
+        int[] page = new int[Math.min(limit, end)];
+        int count = 0;
+        while (count < page.length && !cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            page[count++] = current.ids[cursor[0]];
+            if (++cursor[0] < cursor[1]) {
+                cursors.add(cursor);
+            }
+        }
+        return Arrays.copyOf(page, count);
+    }
+
+    public synchronized void put(int id, Integer plz) {
+        Snapshot current = without(snapshot, id);
+        if (plz == null) {
+            snapshot = current;
+            return;
+        }
+        int at = current.lowerBound(plz, id);
+        int[] newPlz = new int[current.plz.length + 1];
+        int[] newIds = new int[current.ids.length + 1];
+        System.arraycopy(current.plz, 0, newPlz, 0, at);
+        System.arraycopy(current.ids, 0, newIds, 0, at);
+        newPlz[at] = plz;
+        newIds[at] = id;
+        System.arraycopy(current.plz, at, newPlz, at + 1, current.plz.length - at);
+        System.arraycopy(current.ids, at, newIds, at + 1, current.ids.length - at);
+        snapshot = new Snapshot(newPlz, newIds);
+    }
+
+    public synchronized void remove(int id) {
+        snapshot = without(snapshot, id);
+    }
+
+    private static Snapshot without(Snapshot current, int id) {
+        for (int i = 0; i < current.ids.length; i++) {
+            if (current.ids[i] == id) {
+                int[] newPlz = new int[current.plz.length - 1];
+                int[] newIds = new int[current.ids.length - 1];
+                System.arraycopy(current.plz, 0, newPlz, 0, i);
+                System.arraycopy(current.ids, 0, newIds, 0, i);
+                System.arraycopy(current.plz, i + 1, newPlz, i, current.plz.length - i - 1);
+                System.arraycopy(current.ids, i + 1, newIds, i, current.ids.length - i - 1);
+                return new Snapshot(newPlz, newIds);
+            }
+        }
+        return current;
+    }
+
+    // entries are ordered by plz, then id
+    private record Snapshot(int[] plz, int[] ids) {
+
+        // first position whose (plz, id) is not smaller than the given pair
+        private int lowerBound(int plzKey, int idKey) {
+            int low = 0;
+            int high = plz.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (plz[mid] < plzKey || (plz[mid] == plzKey && ids[mid] < idKey)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.ParentEntry;
+import ch.bbcag.ebai.repositories.AdvertRepository;
+import ch.bbcag.ebai.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// which adverts belong to which location, through the location of the advert's owner
+@Service
+public class RegionIndex {
+
+    @Autowired
+    private AdvertRepository advertRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Integer, Integer> userByAdvert = new HashMap<>();
+
+    private final Map<Integer, Set<Integer>> advertsByUser = new HashMap<>();
+
+    private final Map<Integer, Integer> locationByUser = new HashMap<>();
+
+    // sorted, so a page only has to look at the ids right after the cursor
+    private final Map<Integer, NavigableSet<Integer>> advertsByLocation = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void load() {
+        List<ParentEntry> users = userRepository.findAllLocationIds();
+        List<ParentEntry> adverts = advertRepository.findAllUserIds();
+        lock.writeLock().lock();
+        try {
+            userByAdvert.clear();
+            advertsByUser.clear();
+            locationByUser.clear();
+            advertsByLocation.clear();
+            for (ParentEntry user : users) {
+                putUserLocked(user.id(), user.parentId());
+            }
+            for (ParentEntry advert : adverts) {
+                putAdvertLocked(advert.id(), advert.parentId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // advert ids above after in ascending order, at most limit of them; the sorted ids of the locations are merged
+    // and the merge stops after limit ids, so a page costs the same however many adverts the region has
+    public List<Integer> findAdvertIds(int[] locationIds, int after, int limit) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(Cursor::advertId));
+            for (int locationId : locationIds) {
+                NavigableSet<Integer> adverts = advertsByLocation.get(locationId);
+                if (adverts != null) {
+                    advance(cursors, adverts.tailSet(after, false).iterator());
+                }
+            }
+            List<Integer> ids = new ArrayList<>();
+            while (ids.size() < limit && !cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                // a location passed twice would return its adverts twice
+                if (ids.isEmpty() || ids.get(ids.size() - 1) != cursor.advertId()) {
+                    ids.add(cursor.advertId());
+                }
+                advance(cursors, cursor.rest());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void putAdvert(Integer advertId, Integer userId) {
+        lock.writeLock().lock();
+        try {
+            removeAdvertLocked(advertId);
+            putAdvertLocked(advertId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAdvert(Integer advertId) {
+        lock.writeLock().lock();
+        try {
+            removeAdvertLocked(advertId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // moving a user moves all of their adverts
+    public void putUser(Integer userId, Integer locationId) {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> adverts = advertsByUser.getOrDefault(userId, Set.of());
+            Integer previousLocationId = locationByUser.get(userId);
+            if (previousLocationId != null) {
+                removeAll(advertsByLocation, previousLocationId, adverts);
+            }
+            putUserLocked(userId, locationId);
+            if (locationId != null && !adverts.isEmpty()) {
+                advertsByLocation.computeIfAbsent(locationId, id -> new TreeSet<>()).addAll(adverts);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(Integer userId) {
+        putUser(userId, null);
+    }
+
+    private void putUserLocked(Integer userId, Integer locationId) {
+        if (locationId == null) {
+            locationByUser.remove(userId);
+        } else {
+            locationByUser.put(userId, locationId);
+        }
+    }
+
+    private void putAdvertLocked(Integer advertId, Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        userByAdvert.put(advertId, userId);
+        advertsByUser.computeIfAbsent(userId, id -> new HashSet<>()).add(advertId);
+        Integer locationId = locationByUser.get(userId);
+        if (locationId != null) {
+            advertsByLocation.computeIfAbsent(locationId, id -> new TreeSet<>()).add(advertId);
+        }
+    }
+
+    private void removeAdvertLocked(Integer advertId) {
+        Integer userId = userByAdvert.remove(advertId);
+        if (userId == null) {
+            return;
+        }
+        removeAll(advertsByUser, userId, Set.of(advertId));
+        Integer locationId = locationByUser.get(userId);
+        if (locationId != null) {
+            removeAll(advertsByLocation, locationId, Set.of(advertId));
+        }
+    }
+
+    private static void removeAll(Map<Integer, ? extends Set<Integer>> index, Integer key, Set<Integer> values) {
+        Set<Integer> current = index.get(key);
+        if (current != null) {
+            current.removeAll(values);
+            if (current.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void advance(PriorityQueue<Cursor> cursors, Iterator<Integer> rest) {
+        if (rest.hasNext()) {
+            cursors.add(new Cursor(rest.next(), rest));
+        }
+    }
+
+    private record Cursor(int advertId, Iterator<Integer> rest) {
+    }
+}
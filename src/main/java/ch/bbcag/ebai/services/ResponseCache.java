@@ -0,0 +1,135 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.CacheStatistics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.GZIPOutputStream;
+
+// serialized responses of hot read endpoints, keyed by path and query string and dropped by EntityCaches when their data changes
+@Service
+public class ResponseCache {
+
+    public record Key(String path, String query) {
+    }
+
+    public record Entry(String contentType, byte[] body, byte[] gzipBody, String etag) {
+
+        public int weight() {
+            return body.length + (gzipBody == null ? 0 : gzipBody.length);
+        }
+    }
+
+    @Value("${ebai.response-cache.maximum-bytes}")
+    private long maximumBytes;
+
+    @Value("${ebai.response-cache.gzip-min-bytes}")
+    private int gzipMinBytes;
+
+    // a fixed number of generation stripes, so an invalidation only affects renders of paths sharing its stripe
+    private static final int GENERATION_STRIPES = 1024;
+
+    // bumped by every invalidation of a path, a response rendered while it changed may already be stale
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    // the cached query strings of every path, so a path is dropped without looking at the other entries
+    private final Map<String, Set<String>> queriesByPath = new ConcurrentHashMap<>();
+
+    private Cache<Key, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .evictionListener((Key key, Entry entry, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+    }
+
+    public Entry get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    public long generation(String path) {
+        return generations.get(stripeOf(path));
+    }
+
+    // keeps the ETag the controller derived from the entity versions, so hits and misses send the same one
+    public Entry put(Key key, String contentType, byte[] body, String etag, long renderedAt) {
+        byte[] gzipBody = body.length >= gzipMinBytes ? gzip(body) : null;
+        Entry entry = new Entry(contentType, body, gzipBody, etag != null ? etag : "W/\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        int stripe = stripeOf(key.path());
+        if (generations.get(stripe) == renderedAt) {
+            // indexed after the put, an eviction in between leaves at most a query that is no longer cached
+            cache.put(key, entry);
+            queriesByPath.compute(key.path(), (path, queries) -> {
+                Set<String> pathQueries = queries != null ? queries : ConcurrentHashMap.newKeySet();
+                pathQueries.add(key.query());
+                return pathQueries;
+            });
+            // an invalidation may have slipped in between the check and the index
+            if (generations.get(stripe) != renderedAt) {
+                cache.invalidate(key);
+                unindex(key);
+            }
+        }
+        return entry;
+    }
+
+    // all cached parameter variants of the path
+    public void invalidate(String path) {
+        generations.incrementAndGet(stripeOf(path));
+        Set<String> queries = queriesByPath.remove(path);
+        if (queries != null) {
+            queries.forEach(query -> cache.invalidate(new Key(path, query)));
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+        queriesByPath.clear();
+    }
+
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics("responses", cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+
+    private void unindex(Key key) {
+        queriesByPath.computeIfPresent(key.path(), (path, queries) -> {
+            queries.remove(key.query());
+            return queries.isEmpty() ? null : queries;
+        });
+    }
+
+    private static int stripeOf(String path) {
+        return Math.floorMod(path.hashCode(), GENERATION_STRIPES);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
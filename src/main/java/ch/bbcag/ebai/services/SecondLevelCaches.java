@@ -0,0 +1,68 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.CacheStatistics;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// hibernate keeps the second-level cache consistent for its own writes, writes through JdbcTemplate have to evict by hand
+@Service
+public class SecondLevelCaches {
+
+    private static final String LOCATION_USERS_ROLE = Location.class.getName() + ".users";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager secondLevelCacheManager;
+
+    public void locationUsersChanged(Integer locationId) {
+        org.hibernate.Cache cache = hibernateCache();
+        cache.evictCollectionData(LOCATION_USERS_ROLE, locationId);
+        cache.evictDefaultQueryRegion();
+    }
+
+    public void locationUsersChanged(Collection<Integer> locationIds) {
+        org.hibernate.Cache cache = hibernateCache();
+        locationIds.forEach(locationId -> cache.evictCollectionData(LOCATION_USERS_ROLE, locationId));
+        cache.evictDefaultQueryRegion();
+    }
+
+    public void locationUpdated(Integer locationId) {
+        org.hibernate.Cache cache = hibernateCache();
+        cache.evictEntityData(Location.class, locationId);
+        cache.evictDefaultQueryRegion();
+    }
+
+    // the previous location of the user is not known without a select, so the users of all locations are dropped
+    public void userUpdated(Integer userId) {
+        org.hibernate.Cache cache = hibernateCache();
+        cache.evictEntityData(User.class, userId);
+        cache.evictCollectionData(LOCATION_USERS_ROLE);
+        cache.evictDefaultQueryRegion();
+    }
+
+    public List<CacheStatistics> statistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (String name : secondLevelCacheManager.getCacheNames()) {
+            Cache<?, ?> cache = secondLevelCacheManager.getCache(name).unwrap(Cache.class);
+            CacheStats stats = cache.stats();
+            statistics.add(new CacheStatistics("second-level:" + name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount()));
+        }
+        return statistics;
+    }
+
+    private org.hibernate.Cache hibernateCache() {
+        return entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+    }
+}
@@ -0,0 +1,27 @@
+package ch.bbcag.ebai.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AcceptEncodingTest {
+
+    @Test
+    public void checkAcceptsGzip_whenGzipIsListed_thenItsQualityDecides() {
+        assertTrue(AcceptEncoding.acceptsGzip("gzip, deflate, br"));
+        assertTrue(AcceptEncoding.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=x"));
+    }
+
+    @Test
+    public void checkAcceptsGzip_whenGzipIsNotListed_thenWildcardDecides() {
+        assertTrue(AcceptEncoding.acceptsGzip("*"));
+        assertFalse(AcceptEncoding.acceptsGzip("*;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("deflate, br"));
+        assertFalse(AcceptEncoding.acceptsGzip("identity"));
+        assertFalse(AcceptEncoding.acceptsGzip(null));
+    }
+}
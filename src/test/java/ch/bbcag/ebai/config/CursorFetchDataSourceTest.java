@@ -0,0 +1,38 @@
+package ch.bbcag.ebai.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+public class CursorFetchDataSourceTest {
+
+    @Test
+    public void checkGetConnection_whenInsideCursorFetchScope_thenCursorPoolIsUsed() throws Exception {
+        DataSource defaultPool = mock(DataSource.class);
+        DataSource cursorPool = mock(DataSource.class);
+        Connection defaultConnection = mock(Connection.class);
+        Connection cursorConnection = mock(Connection.class);
+        when(defaultPool.getConnection()).thenReturn(defaultConnection);
+        when(cursorPool.getConnection()).thenReturn(cursorConnection);
+        CursorFetchDataSource dataSource = new CursorFetchDataSource(defaultPool, cursorPool);
+
+        assertSame(defaultConnection, dataSource.getConnection());
+        try (CursorFetchDataSource.Scope cursorFetch = CursorFetchDataSource.cursorFetch()) {
+            assertSame(cursorConnection, dataSource.getConnection());
+        }
+        assertSame(defaultConnection, dataSource.getConnection());
+    }
+
+    @Test
+    public void checkWithCursorFetch_whenUrlIsGiven_thenOnlyMySqlUrlsGetTheOption() {
+        assertEquals("jdbc:mysql://localhost:3306/mydb?serverTimezone=UTC&useCursorFetch=true",
+                CursorFetchDataSource.withCursorFetch("jdbc:mysql://localhost:3306/mydb?serverTimezone=UTC"));
+        assertEquals("jdbc:mysql://localhost:3306/mydb?useCursorFetch=true", CursorFetchDataSource.withCursorFetch("jdbc:mysql://localhost:3306/mydb"));
+        assertEquals("jdbc:h2:mem:test;MODE=MySQL", CursorFetchDataSource.withCursorFetch("jdbc:h2:mem:test;MODE=MySQL"));
+    }
+}
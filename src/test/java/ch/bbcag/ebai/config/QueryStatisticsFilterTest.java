@@ -0,0 +1,46 @@
+package ch.bbcag.ebai.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryStatisticsFilterTest {
+
+    private final QueryStatisticsFilter filter = new QueryStatisticsFilter(List.of("/**/stream"), 10);
+
+    @Test
+    public void checkFilter_whenBodyFitsIntoBuffer_thenHeaderIsSetAfterChain() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/locations"), response, (request, chainResponse) -> {
+            chainResponse.getOutputStream().write(new byte[]{'[', ']'});
+            assertNull(response.getHeader("Server-Timing"));
+        });
+
+        assertNotNull(response.getHeader("Server-Timing"));
+        assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    public void checkFilter_whenBodyExceedsBuffer_thenHeaderIsSetBeforeCommitWithoutBuffering() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setBufferSize(4);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/locations"), response, (request, chainResponse) -> {
+            assertFalse(response.isCommitted());
+            chainResponse.getOutputStream().write(new byte[10]);
+            // the bytes reached the underlying response right away
+            assertTrue(response.isCommitted());
+            assertEquals(10, response.getContentAsByteArray().length);
+            assertNotNull(response.getHeader("Server-Timing"));
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package ch.bbcag.ebai.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryStatisticsTest {
+
+    @AfterEach
+    public void stop() {
+        QueryStatistics.stop();
+    }
+
+    @Test
+    public void checkShape_whenInListsDiffer_thenShapeIsTheSame() {
+        assertEquals(QueryStatistics.shapeOf("select * from bid where id in (?, ?)"),
+                QueryStatistics.shapeOf("select *  from bid\n where id in (?,?,?)"));
+    }
+
+    @Test
+    public void checkRepeatedShapes_whenStatementRepeatsMoreThanThreshold_thenShapeIsReported() {
+        QueryStatistics statistics = QueryStatistics.start();
+        for (int i = 0; i < 4; i++) {
+            QueryStatistics.record("select * from user where id=?", 1_000_000);
+        }
+        QueryStatistics.record("select * from advert", 1_000_000);
+
+        assertEquals(5, statistics.statementCount());
+        assertEquals(Map.of("select * from user where id=?", 4), statistics.repeatedShapes(3));
+        assertTrue(statistics.serverTiming(10_000_000).startsWith("db;dur=5.00;desc=\"5 statements\""));
+    }
+
+    @Test
+    public void checkRecord_whenNotStarted_thenNothingIsRecorded() {
+        QueryStatistics.record("select 1", 1);
+        QueryStatistics statistics = QueryStatistics.start();
+
+        assertEquals(0, statistics.statementCount());
+    }
+}
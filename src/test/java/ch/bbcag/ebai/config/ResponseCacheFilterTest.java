@@ -0,0 +1,114 @@
+package ch.bbcag.ebai.config;
+
+import ch.bbcag.ebai.utils.TestRecords;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "ebai.response-cache.gzip-min-bytes=0")
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+public class ResponseCacheFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestRecords records;
+
+    @BeforeEach
+    public void createRecords() {
+        records = new TestRecords(mockMvc, jdbcTemplate);
+    }
+
+    @Test
+    public void checkGet_whenCachedPathRequestedAgain_thenStoredResponseIsWritten() throws Exception {
+        records.location("Bern", 3000);
+        String etag = etagOf(get("/locations").queryParam("location", "Bern"));
+
+        mockMvc.perform(get("/locations").queryParam("location", "Bern"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", "cache;desc=\"hit\""))
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    public void checkGet_whenIfNoneMatchIsStoredTag_thenNotModified() throws Exception {
+        records.location("Biel", 2500);
+        String etag = etagOf(get("/locations").queryParam("location", "Biel"));
+
+        mockMvc.perform(get("/locations").queryParam("location", "Biel").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void checkGet_whenDataChanges_thenStoredResponseIsReplaced() throws Exception {
+        int locationId = records.location("Chur", 7000);
+        MockHttpServletResponse response = mockMvc.perform(get("/locations").queryParam("location", "Chur"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].userCount").value(0))
+                .andReturn().getResponse();
+        String etag = response.getHeader(HttpHeaders.ETAG);
+
+        records.user("Mattia", locationId);
+
+        mockMvc.perform(get("/locations").queryParam("location", "Chur").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].userCount").value(1));
+    }
+
+    @Test
+    public void checkGet_whenGzipAccepted_thenCompressedVariantIsWritten() throws Exception {
+        int advertId = records.advert("Velo", records.user("Seller", records.location("Thun", 3600)));
+        mockMvc.perform(get("/adverts/" + advertId)).andExpect(jsonPath("$.name").value("Velo"));
+
+        byte[] compressed = mockMvc.perform(get("/adverts/" + advertId).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        String body = new String(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(mockMvc.perform(get("/adverts/" + advertId)).andReturn().getResponse().getContentAsString(), body);
+    }
+
+    @Test
+    public void checkGet_whenCachedEntityUpdated_thenNewVersionIsWritten() throws Exception {
+        int userId = records.user("Seller", records.location("Sion", 1950));
+        int advertId = records.advert("Sofa", userId);
+        mockMvc.perform(get("/adverts/" + advertId)).andExpect(jsonPath("$.name").value("Sofa"));
+
+        mockMvc.perform(put("/adverts")
+                        .contentType("application/json")
+                        .content("{\"id\":\"" + advertId + "\", \"name\":\"Sofa Rot\", \"user\":{\"id\":\"" + userId + "\"}}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/adverts/" + advertId)).andExpect(jsonPath("$.name").value("Sofa Rot"));
+    }
+
+    private String etagOf(MockHttpServletRequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
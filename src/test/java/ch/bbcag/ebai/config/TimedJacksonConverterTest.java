@@ -0,0 +1,29 @@
+package ch.bbcag.ebai.config;
+
+import ch.bbcag.ebai.models.HighestBid;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimedJacksonConverterTest {
+
+    @Test
+    public void checkWrite_whenBodyWritten_thenSerializationIsTimedByType() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TimedJacksonConverter converter = new TimedJacksonConverter(new ObjectMapper(), meterRegistry);
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        converter.write(new HighestBid(1, 20, 2, 3), MediaType.APPLICATION_JSON, outputMessage);
+        converter.write(new HighestBid(2, 10, 2, 1), MediaType.APPLICATION_JSON, new MockHttpOutputMessage());
+
+        Timer timer = meterRegistry.get("ebai.serialization").tag("type", "HighestBid").timer();
+        assertEquals(2, timer.count());
+        assertTrue(outputMessage.getBodyAsString().contains("\"bidCount\":3"));
+    }
+}
@@ -0,0 +1,94 @@
+package ch.bbcag.ebai.config;
+
+import ch.bbcag.ebai.utils.TestRecords;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+public class VersionETagAdviceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestRecords records;
+
+    private int locationId;
+
+    private int userId;
+
+    @BeforeEach
+    public void createUser() throws Exception {
+        records = new TestRecords(mockMvc, jdbcTemplate);
+        locationId = records.location("Bern", 3000);
+        userId = records.user("Mattia", locationId);
+    }
+
+    @Test
+    public void checkGet_whenEntityUnchanged_thenNotModified() throws Exception {
+        String userTag = etagOf("/users/" + userId);
+
+        mockMvc.perform(get("/users/" + userId).header(HttpHeaders.IF_NONE_MATCH, userTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void checkGet_whenEntityUpdated_thenNewVersionIsWritten() throws Exception {
+        String userTag = etagOf("/users/" + userId);
+
+        for (String name : new String[]{"Mattia B", "Mattia C"}) {
+            mockMvc.perform(put("/users")
+                            .contentType("application/json")
+                            .content("{\"id\":\"" + userId + "\", \"name\":\"" + name + "\", \"location\":{\"id\":\"" + locationId + "\"}}"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/users/" + userId).header(HttpHeaders.IF_NONE_MATCH, userTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Mattia C"))
+                .andExpect(jsonPath("$.version").value(2));
+    }
+
+    @Test
+    public void checkGet_whenBidPlaced_thenAdvertTagChanges() throws Exception {
+        int advertId = records.advert("Velo", userId);
+        String advertTag = etagOf("/adverts/" + advertId);
+
+        records.bid(10, advertId, userId);
+
+        assertNotEquals(advertTag, etagOf("/adverts/" + advertId));
+    }
+
+    @Test
+    public void checkGetList_whenUnchanged_thenNotModified() throws Exception {
+        String locationsTag = etagOf("/locations");
+
+        mockMvc.perform(get("/locations").header(HttpHeaders.IF_NONE_MATCH, locationsTag))
+                .andExpect(status().isNotModified());
+    }
+
+    private String etagOf(String path) throws Exception {
+        String etag = mockMvc.perform(get(path)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
@@ -2,6 +2,9 @@ package ch.bbcag.ebai.controllers;
 
 
 import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.AdvertSummary;
+import ch.bbcag.ebai.models.HighestBid;
+import ch.bbcag.ebai.models.KeysetPage;
 import ch.bbcag.ebai.repositories.AdvertRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -31,6 +34,7 @@ import static ch.bbcag.ebai.utils.TestDataUtils.getTestAdvert;
 import static ch.bbcag.ebai.utils.TestDataUtils.getTestAdverts;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -91,6 +95,66 @@ public class AdvertControllerTest {
                 .andExpect(status().isOk()).andExpect(content().string("[]"));
     }
 
+    @Test
+    public void checkGet_whenLimitGiven_thenPageWithNextCursorIsReturned() throws Exception {
+        List<AdvertSummary> adverts = List.of(new AdvertSummary(1, "Advert 1", 1, 2, 20), new AdvertSummary(2, "Advert 2", 1, 0, null));
+        doReturn(new KeysetPage<>(adverts, 1)).when(advertController).findPageByName(null, 2, null);
+
+        mockMvc.perform(get("/adverts")
+                        .contentType("application/json")
+                        .queryParam("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].bidCount").value(2))
+                .andExpect(jsonPath("$.items[0].highestBid").value(20))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+    }
+
+    @Test
+    public void checkGet_whenPlzRangeGiven_thenRegionPageIsReturned() throws Exception {
+        List<AdvertSummary> adverts = List.of(new AdvertSummary(3, "Advert 3", 2, 1, 15));
+        doReturn(new KeysetPage<>(adverts, null)).when(advertController).findPageByPlzRange(3000, 3999, null, null);
+
+        mockMvc.perform(get("/adverts")
+                        .contentType("application/json")
+                        .queryParam("plzFrom", "3000")
+                        .queryParam("plzTo", "3999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(3));
+    }
+
+    @Test
+    public void checkGet_whenOnlyPlzFromGiven_thenRangeIsRejected() throws Exception {
+        doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST)).when(advertController).rejectPlzFromWithoutPlzTo();
+
+        mockMvc.perform(get("/adverts")
+                        .contentType("application/json")
+                        .queryParam("plzFrom", "3000")
+                        .queryParam("limit", "2"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void checkGetStream_whenNameGiven_thenMatchingAdvertsAreStreamed() throws Exception {
+        mockMvc.perform(get("/adverts/stream")
+                        .queryParam("name", "Advert"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(advertController).streamByName(eq("Advert"), any());
+    }
+
+    @Test
+    public void checkGetSuggest_whenPrefixGiven_thenNamesAreReturned() throws Exception {
+        doReturn(List.of("Advert 1", "Advert 2")).when(advertController).suggest("Adv", null);
+
+        mockMvc.perform(get("/adverts/suggest")
+                        .queryParam("prefix", "Adv"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0]").value("Advert 1"));
+    }
+
     @Test //pass
     public void checkGetById_whenValidId_thenAdvertIsReturned() throws Exception {
 
@@ -107,6 +171,17 @@ public class AdvertControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void checkGetHighestBid_whenAdvertHasBids_thenHighestBidIsReturned() throws Exception {
+        doReturn(new HighestBid(1, 42, 3, 5)).when(advertController).findHighestBid(1);
+        mockMvc.perform(get("/adverts/1/highest-bid")
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(42))
+                .andExpect(jsonPath("$.userId").value(3))
+                .andExpect(jsonPath("$.bidCount").value(5));
+    }
+
     @Test //pass
     public void checkPut_whenValidAdvert_thenIsOk() throws Exception {
         mockMvc.perform(put("/adverts")
@@ -2,6 +2,7 @@ package ch.bbcag.ebai.controllers;
 
 import ch.bbcag.ebai.models.Advert;
 import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.KeysetPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -20,6 +21,8 @@ import java.util.Optional;
 
 import static ch.bbcag.ebai.utils.TestDataUtils.getTestAdverts;
 import static ch.bbcag.ebai.utils.TestDataUtils.getTestBids;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -32,7 +35,7 @@ public class BidControllerTest {
 
     private ObjectMapper objectMapper = new ObjectMapper();
 
-    private String postValidBidJson = "{\"id\":\"0\", \"advert\":{\"id\":\"1\"}, \"user\":{\"id\":\"1\"}}";
+    private String postValidBidJson = "{\"id\":\"0\", \"value\":\"10\", \"advert\":{\"id\":\"1\"}, \"user\":{\"id\":\"1\"}}";
     private String postInvalidBidJson = "{\"id\":\"0\" \"user\":{\"id\":\"1\"}}";
 
     @Autowired
@@ -79,6 +82,27 @@ public class BidControllerTest {
                 .andExpect(content().string("[]"));
     }
 
+    @Test
+    public void checkGet_whenLimitAndAfterGiven_thenPageIsReturned() throws Exception {
+        doReturn(new KeysetPage<>(getTestBids(), null)).when(bidController).findPageByValue(null, 10, 4);
+
+        mockMvc.perform(get("/bids")
+                        .contentType("application/json")
+                        .queryParam("limit", "10")
+                        .queryParam("after", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(5)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    public void checkGetStream_whenNoParam_thenAllBidsAreStreamed() throws Exception {
+        mockMvc.perform(get("/bids/stream"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(bidController).streamByValue(eq(null), any());
+    }
+
     @Test //pass
     public void checkGetById_whenValidId_thenBidIsReturned() throws Exception {
         mockMvc.perform(get("/bids/" + 1)
@@ -0,0 +1,187 @@
+package ch.bbcag.ebai.controllers;
+
+import ch.bbcag.ebai.utils.TestRecords;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static ch.bbcag.ebai.utils.QueryBudget.statementsAtMost;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+public class ConditionalUpdateTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestRecords records;
+
+    private int locationId;
+
+    private int userId;
+
+    @BeforeEach
+    public void createUser() throws Exception {
+        records = new TestRecords(mockMvc, jdbcTemplate);
+        locationId = records.location("Bern", 3000);
+        userId = records.user("Mattia", locationId);
+    }
+
+    @Test
+    public void checkPut_whenIfMatchIsCurrent_thenUpdatedWithOneStatement() throws Exception {
+        String userTag = etagOf("/users/" + userId);
+
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, userTag)
+                        .contentType("application/json")
+                        .content(user("Mattia B")))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(1));
+    }
+
+    @Test
+    public void checkPut_whenIfMatchIsStale_thenPreconditionFailed() throws Exception {
+        String userTag = etagOf("/users/" + userId);
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, userTag)
+                        .contentType("application/json")
+                        .content(user("Mattia B")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, userTag)
+                        .contentType("application/json")
+                        .content(user("Mattia C")))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/users/" + userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Mattia B"))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    public void checkPutLocation_whenIfMatchIsCurrent_thenUsersAreKept() throws Exception {
+        mockMvc.perform(put("/locations")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType("application/json")
+                        .content("{\"id\":\"" + locationId + "\", \"name\":\"Bern Stadt\", \"plz\":\"3000\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/locations/" + locationId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Bern Stadt"))
+                .andExpect(jsonPath("$.users[0].name").value("Mattia"));
+    }
+
+    @Test
+    public void checkPut_whenIfMatchIsWildcard_thenBadRequest() throws Exception {
+        mockMvc.perform(put("/locations")
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .contentType("application/json")
+                        .content("{\"id\":\"" + locationId + "\", \"name\":\"Bern\", \"plz\":\"3000\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void checkPut_whenIdIsMissing_thenBadRequest() throws Exception {
+        mockMvc.perform(put("/locations")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType("application/json")
+                        .content("{\"name\":\"Bern\", \"plz\":\"3000\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void checkPut_whenLocationOfUserIsMissing_thenBadRequest() throws Exception {
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType("application/json")
+                        .content("{\"id\":\"" + userId + "\", \"name\":\"Mattia\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void checkPutBid_whenIfMatchAndValueIsBelowHighestBid_thenConflict() throws Exception {
+        int advertId = records.advert("Velo", userId);
+        int bidId = records.bid(10, advertId, userId);
+        records.bid(20, advertId, userId);
+
+        mockMvc.perform(put("/bids")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType("application/json")
+                        .content(bid(bidId, 15, advertId)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void checkPutBid_whenIfMatchAndValueIsAboveHighestBid_thenItBecomesTheHighestBid() throws Exception {
+        int advertId = records.advert("Velo", userId);
+        int bidId = records.bid(10, advertId, userId);
+        records.bid(20, advertId, userId);
+
+        mockMvc.perform(put("/bids")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType("application/json")
+                        .content(bid(bidId, 25, advertId)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/adverts/" + advertId + "/highest-bid"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(25));
+    }
+
+    // a put without If-Match follows the same rule
+    @Test
+    public void checkPutBid_whenValueIsBelowHighestBid_thenConflict() throws Exception {
+        int advertId = records.advert("Velo", userId);
+        int bidId = records.bid(10, advertId, userId);
+        records.bid(25, advertId, userId);
+
+        mockMvc.perform(put("/bids")
+                        .contentType("application/json")
+                        .content(bid(bidId, 22, advertId)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void checkPutBid_whenValueIsAboveHighestBid_thenItBecomesTheHighestBid() throws Exception {
+        int advertId = records.advert("Velo", userId);
+        int bidId = records.bid(10, advertId, userId);
+        records.bid(25, advertId, userId);
+
+        mockMvc.perform(put("/bids")
+                        .contentType("application/json")
+                        .content(bid(bidId, 30, advertId)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/adverts/" + advertId + "/highest-bid"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(30));
+    }
+
+    private String user(String name) {
+        return "{\"id\":\"" + userId + "\", \"name\":\"" + name + "\", \"location\":{\"id\":\"" + locationId + "\"}}";
+    }
+
+    private String bid(int bidId, int value, int advertId) {
+        return "{\"id\":" + bidId + ", \"value\":" + value + ", \"advert\":{\"id\":" + advertId + "}, \"user\":{\"id\":" + userId + "}}";
+    }
+
+    private String etagOf(String path) throws Exception {
+        String etag = mockMvc.perform(get(path)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
@@ -1,7 +1,9 @@
 package ch.bbcag.ebai.controllers;
 
 import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.KeysetPage;
 import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.models.LocationSummary;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -10,7 +12,9 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -122,6 +126,57 @@ public class LocationControllerTest {
                 .andExpect(status().isOk()).andExpect(content().string("[]"));
     }
 
+    @Test
+    public void checkGet_whenPlzAndLimitGiven_thenPageIsReturned() throws Exception {
+        doReturn(new KeysetPage<>(getTestLocations(), 3)).when(locationController).findPageByNameOrPlz(null, 3000, 5, null);
+
+        mockMvc.perform(get("/locations")
+                        .contentType("application/json")
+                        .queryParam("plz", "3000")
+                        .queryParam("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value(3));
+    }
+
+    @Test
+    public void checkGet_whenPlzRangeGiven_thenLocationsInRangeAreReturned() throws Exception {
+        doReturn(List.of(new LocationSummary(1, "Bern", 3000, 2, 0), new LocationSummary(2, "Thun", 3600, 0, 0)))
+                .when(locationController).findByPlzRange(3000, 3999);
+
+        mockMvc.perform(get("/locations")
+                        .contentType("application/json")
+                        .queryParam("plzFrom", "3000")
+                        .queryParam("plzTo", "3999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].plz").value(3600));
+    }
+
+    @Test
+    public void checkGet_whenPlzRangeAndLimitGiven_thenPageIsReturned() throws Exception {
+        doReturn(new KeysetPage<>(List.of(new LocationSummary(1, "Bern", 3000, 2, 0)), 1))
+                .when(locationController).findPageByPlzRange(3000, 3999, 1, null);
+
+        mockMvc.perform(get("/locations")
+                        .contentType("application/json")
+                        .queryParam("plzFrom", "3000")
+                        .queryParam("plzTo", "3999")
+                        .queryParam("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+    }
+
+    @Test
+    public void checkGet_whenOnlyPlzToGiven_thenRangeIsRejected() throws Exception {
+        doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST)).when(locationController).rejectPlzToWithoutPlzFrom();
+
+        mockMvc.perform(get("/locations")
+                        .contentType("application/json")
+                        .queryParam("plzTo", "3999"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test //pass
     public void checkGetById_whenValidId_thenLocationIsReturned() throws Exception {
 
@@ -0,0 +1,198 @@
+package ch.bbcag.ebai.controllers;
+
+import ch.bbcag.ebai.services.MergePatchService;
+import ch.bbcag.ebai.utils.TestRecords;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static ch.bbcag.ebai.utils.QueryBudget.statementsAtMost;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+public class MergePatchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestRecords records;
+
+    private int userId;
+
+    private int advertId;
+
+    @BeforeEach
+    public void createAdvert() throws Exception {
+        records = new TestRecords(mockMvc, jdbcTemplate);
+        userId = records.user("Mattia", records.location("Bern", 3000));
+        advertId = records.advert("Velo", userId);
+    }
+
+    @Test
+    public void checkPatch_whenSingleField_thenOnlyThatColumnChanges() throws Exception {
+        mockMvc.perform(get("/adverts/" + advertId)).andExpect(status().isOk());
+
+        mockMvc.perform(patch("/adverts/" + advertId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"name\":\"Velo rot\"}"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(1));
+        mockMvc.perform(get("/adverts/" + advertId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Velo rot"))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    public void checkPatch_whenNameChanges_thenUserAndSearchShowTheNewName() throws Exception {
+        mockMvc.perform(patch("/adverts/" + advertId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"name\":\"Velo gelb\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/" + userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.adverts[0].name").value("Velo gelb"));
+        mockMvc.perform(get("/adverts").queryParam("name", "gelb"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", hasItem(advertId)));
+    }
+
+    @Test
+    public void checkPatch_whenIfMatchIsStale_thenPreconditionFailed() throws Exception {
+        mockMvc.perform(patch("/adverts/" + advertId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"name\":\"Velo rot\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/adverts/" + advertId)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"name\":\"Velo blau\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void checkPatch_whenUnknownId_thenNotFound() throws Exception {
+        mockMvc.perform(patch("/adverts/0")
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"name\":\"Velo blau\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void checkPatch_whenInvalid_thenBadRequest() throws Exception {
+        for (String invalidPatch : new String[]{"{\"id\":5}", "{\"name\":null}", "{\"name\":\"\"}", "{\"user\":7}", "[]"}) {
+            mockMvc.perform(patch("/adverts/" + advertId)
+                            .contentType(MergePatchService.MEDIA_TYPE)
+                            .content(invalidPatch))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    public void checkPatch_whenEmpty_thenNothingChanges() throws Exception {
+        mockMvc.perform(patch("/adverts/" + advertId)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/adverts/" + advertId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Velo"))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    public void checkPatch_whenEmptyAndUnknownId_thenNotFound() throws Exception {
+        mockMvc.perform(patch("/adverts/0")
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void checkPatchBid_whenValueIsRaised_thenHighestBidChanges() throws Exception {
+        int bidId = records.bid(10, advertId, userId);
+
+        mockMvc.perform(patch("/bids/" + bidId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"value\":25}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/adverts/" + advertId + "/highest-bid"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(25));
+    }
+
+    @Test
+    public void checkPatchBid_whenValueIsNotAboveHighestBid_thenConflict() throws Exception {
+        int bidId = records.bid(10, advertId, userId);
+        records.bid(30, advertId, userId);
+
+        mockMvc.perform(patch("/bids/" + bidId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"value\":28}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/adverts/" + advertId + "/highest-bid"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(30));
+    }
+
+    @Test
+    public void checkPatchBid_whenValueIsAboveHighestBid_thenItBecomesTheHighestBid() throws Exception {
+        int bidId = records.bid(10, advertId, userId);
+        records.bid(30, advertId, userId);
+
+        mockMvc.perform(patch("/bids/" + bidId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"value\":35}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/adverts/" + advertId + "/highest-bid"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(35));
+    }
+
+    @Test
+    public void checkPatchLocation_whenPlzChanges_thenPlzSearchFindsIt() throws Exception {
+        int locationId = records.location("Bern", 3000);
+
+        mockMvc.perform(patch("/locations/" + locationId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"plz\":3011}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/locations").queryParam("plz", "3011"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", hasItem(locationId)));
+    }
+
+    @Test
+    public void checkPatchUser_whenNameChanges_thenLocationShowsTheNewName() throws Exception {
+        int locationId = records.location("Thun", 3600);
+        int patchedUserId = records.user("Lea", locationId);
+
+        mockMvc.perform(patch("/users/" + patchedUserId)
+                        .contentType(MergePatchService.MEDIA_TYPE)
+                        .content("{\"name\":\"Lea B\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/locations/" + locationId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].name").value("Lea B"));
+    }
+}
@@ -0,0 +1,108 @@
+package ch.bbcag.ebai.controllers;
+
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.repositories.BidRepository;
+import ch.bbcag.ebai.utils.TestRecords;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ch.bbcag.ebai.utils.QueryBudget.statementsAtMost;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// list endpoints must not issue one statement per row
+@SpringBootTest
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+public class QueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TestRecords records;
+
+    private int locationId;
+
+    private final List<Integer> userIds = new ArrayList<>();
+
+    private final List<Integer> advertIds = new ArrayList<>();
+
+    @BeforeEach
+    public void createRows() throws Exception {
+        records = new TestRecords(mockMvc, jdbcTemplate);
+        locationId = records.location("Bern", 3000);
+        for (int i = 0; i < 3; i++) {
+            userIds.add(records.user("User " + i, locationId));
+            advertIds.add(records.advert("Advert " + i, userIds.get(i)));
+        }
+    }
+
+    @Test
+    public void checkGetAdverts_whenSeveralRows_thenOneStatementIsExecuted() throws Exception {
+        mockMvc.perform(get("/adverts")).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+        mockMvc.perform(get("/adverts").queryParam("limit", "2")).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+    }
+
+    @Test
+    public void checkGetUsers_whenSeveralRows_thenOneStatementIsExecuted() throws Exception {
+        String ids = userIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/users")).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+        mockMvc.perform(get("/users").queryParam("ids", ids)).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+    }
+
+    @Test
+    public void checkGetLocations_whenSeveralRows_thenOneStatementIsExecuted() throws Exception {
+        mockMvc.perform(get("/locations")).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+        mockMvc.perform(get("/locations").queryParam("plz", "3000").queryParam("limit", "2")).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+        mockMvc.perform(get("/locations").queryParam("plzFrom", "1000").queryParam("plzTo", "9999").queryParam("limit", "2")).andExpect(status().isOk()).andExpect(statementsAtMost(1));
+    }
+
+    @Test
+    public void checkPutLocation_whenVersionNotGiven_thenTwoStatementsAreExecuted() throws Exception {
+        // one select to pick up the current version and the update
+        mockMvc.perform(put("/locations")
+                        .contentType("application/json")
+                        .content("{\"id\":\"" + locationId + "\", \"name\":\"Bern\", \"plz\":\"3001\"}"))
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(2));
+    }
+
+    @Test
+    public void checkBidStream_whenSeveralBids_thenOneStatementIsExecuted() throws Exception {
+        for (int value = 10; value <= 30; value += 10) {
+            records.bid(value, advertIds.get(0), userIds.get(0));
+        }
+
+        // the advert and user of a bid are eager, streaming entities would select them again for every bid
+        List<BidSnapshot> bids = statementsAtMost(1, () -> transactionTemplate.execute(status -> {
+            try (Stream<BidSnapshot> rows = bidRepository.streamAll()) {
+                return rows.toList();
+            }
+        }));
+        assertTrue(bids.size() >= 3);
+    }
+}
@@ -1,7 +1,10 @@
 package ch.bbcag.ebai.controllers;
 
 import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.BatchLookup;
+import ch.bbcag.ebai.models.KeysetPage;
 import ch.bbcag.ebai.models.User;
+import ch.bbcag.ebai.models.UserSummary;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -128,6 +131,45 @@ public class UserControllerTest {
     }
 
 
+    @Test
+    public void checkGet_whenNameAndLimitGiven_thenPageIsReturned() throws Exception {
+        String userName = "User";
+        doReturn(new KeysetPage<>(getTestUsers(), 7)).when(userController).findPageByName(userName, 5, 2);
+
+        mockMvc.perform(get("/users")
+                        .contentType("application/json")
+                        .queryParam("name", userName)
+                        .queryParam("limit", "5")
+                        .queryParam("after", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value(7));
+    }
+
+    @Test
+    public void checkGet_whenIdsGiven_thenUsersAndMissingIdsAreReturned() throws Exception {
+        doReturn(new BatchLookup<>(List.of(new UserSummary(3, "User 3", 1, 0, 2), new UserSummary(1, "User 1", 1, 1, 0)), List.of(9)))
+                .when(userController).findByIds(List.of(3, 9, 1));
+
+        mockMvc.perform(get("/users")
+                        .contentType("application/json")
+                        .queryParam("ids", "3,9,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.items[1].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(9));
+    }
+
+    @Test
+    public void checkGetSuggest_whenPrefixAndLimitGiven_thenNamesAreReturned() throws Exception {
+        doReturn(List.of("Mattia")).when(userController).suggest("Ma", 1);
+
+        mockMvc.perform(get("/users/suggest")
+                        .queryParam("prefix", "Ma")
+                        .queryParam("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
     @Test //pass
     public void checkGetById_whenValidId_thenUserIsReturned() throws Exception {
 
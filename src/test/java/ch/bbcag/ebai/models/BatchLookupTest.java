@@ -0,0 +1,35 @@
+package ch.bbcag.ebai.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchLookupTest {
+
+    @Test
+    public void checkOf_whenIdsGiven_thenItemsInRequestOrderAndMissingIds() {
+        BatchLookup<Integer> lookup = BatchLookup.of(List.of(5, 2, 7, 2), ids -> ids.stream().filter(id -> id != 7).sorted().toList(), id -> id);
+
+        assertEquals(List.of(5, 2), lookup.items());
+        assertEquals(List.of(7), lookup.missing());
+    }
+
+    @Test
+    public void checkOf_whenMoreIdsThanChunkSize_thenQueriedInChunks() {
+        List<Integer> ids = IntStream.rangeClosed(1, BatchLookup.CHUNK_SIZE + 1).boxed().toList();
+        List<List<Integer>> queries = new ArrayList<>();
+
+        BatchLookup<Integer> lookup = BatchLookup.of(ids, chunk -> {
+            queries.add(chunk);
+            return chunk;
+        }, id -> id);
+
+        assertEquals(2, queries.size());
+        assertEquals(BatchLookup.CHUNK_SIZE, queries.get(0).size());
+        assertEquals(ids, lookup.items());
+    }
+}
@@ -0,0 +1,69 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.NameEntry;
+import ch.bbcag.ebai.repositories.AdvertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class AdvertSearchIndexTest {
+
+    @Mock
+    private AdvertRepository advertRepository;
+
+    @InjectMocks
+    private AdvertSearchIndex advertSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(advertSearchIndex, "maxResults", 3);
+        doReturn(List.of(
+                new NameEntry(1, "Kopfhörer Blau"),
+                new NameEntry(2, "Blaue Jacke"),
+                new NameEntry(3, "Jeans blau"),
+                new NameEntry(4, "Velo"),
+                new NameEntry(5, "Blau")
+        )).when(advertRepository).findAllNames();
+        advertSearchIndex.load();
+    }
+
+    @Test
+    public void checkSearch_whenQueryMatches_thenBestMatchesComeFirst() {
+        assertEquals(List.of(5, 2, 3), advertSearchIndex.search("BLAU"));
+    }
+
+    @Test
+    public void checkSearch_whenQueryIsShort_thenNamesAreScanned() {
+        assertEquals(List.of(4), advertSearchIndex.search("el"));
+    }
+
+    @Test
+    public void checkSearch_whenNoNameContainsQuery_thenNothingIsFound() {
+        assertEquals(List.of(), advertSearchIndex.search("blaujacke"));
+    }
+
+    @Test
+    public void checkPut_whenAdvertIsRenamed_thenOldNameIsNotFound() {
+        advertSearchIndex.put(4, "Mountainbike");
+
+        assertEquals(List.of(), advertSearchIndex.search("velo"));
+        assertEquals(List.of(4), advertSearchIndex.search("bike"));
+    }
+
+    @Test
+    public void checkRemove_whenAdvertIsDeleted_thenItIsNotFound() {
+        advertSearchIndex.remove(5);
+
+        assertEquals(List.of(2, 3, 1), advertSearchIndex.search("blau"));
+    }
+}
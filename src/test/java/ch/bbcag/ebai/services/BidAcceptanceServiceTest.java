@@ -0,0 +1,163 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Advert;
+import ch.bbcag.ebai.models.Bid;
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BidAcceptanceServiceTest {
+
+    @Mock
+    private BidBatchWriter bidBatchWriter;
+
+    @Spy
+    private HighestBidIndex highestBidIndex = new HighestBidIndex();
+
+    @InjectMocks
+    private BidAcceptanceService bidAcceptanceService;
+
+    @Test
+    public void checkAccept_whenBidIsNotHigher_thenBidIsRejectedWithoutWrite() {
+        doReturn(CompletableFuture.completedFuture(1)).when(bidBatchWriter).submit(any(Bid.class));
+
+        assertTrue(bidAcceptanceService.accept(getBid(1, 10)));
+        assertFalse(bidAcceptanceService.accept(getBid(1, 10)));
+        assertFalse(bidAcceptanceService.accept(getBid(1, 5)));
+        assertTrue(bidAcceptanceService.accept(getBid(2, 5)));
+
+        verify(bidBatchWriter, times(2)).submit(any(Bid.class));
+    }
+
+    @Test
+    public void checkAccept_whenConcurrentBids_thenOnlyIncreasingBidsAreAccepted() throws Exception {
+        doAnswer(invocation -> CompletableFuture.completedFuture(invocation.<Bid>getArgument(0).getValue()))
+                .when(bidBatchWriter).submit(any(Bid.class));
+        // the index is updated under the advert lock, so its order is the order of acceptance
+        List<Integer> acceptedValues = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            acceptedValues.add(invocation.<BidSnapshot>getArgument(0).value());
+            return invocation.callRealMethod();
+        }).when(highestBidIndex).add(any(BidSnapshot.class));
+
+        List<Integer> values = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (Integer value : values) {
+            executor.submit(() -> bidAcceptanceService.accept(getBid(1, value)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int i = 1; i < acceptedValues.size(); i++) {
+            assertTrue(acceptedValues.get(i) > acceptedValues.get(i - 1));
+        }
+        verify(bidBatchWriter, times(acceptedValues.size())).submit(any(Bid.class));
+        assertEquals(1000, highestBidIndex.findByAdvertId(1).orElseThrow().value());
+    }
+
+    @Test
+    public void checkAccept_whenWriteFails_thenHighestBidIsReloaded() {
+        doReturn(CompletableFuture.failedFuture(new DataIntegrityViolationException("advert does not exist")))
+                .when(bidBatchWriter).submit(any(Bid.class));
+        doNothing().when(highestBidIndex).reload(eq(1), any());
+
+        assertThrows(DataIntegrityViolationException.class, () -> bidAcceptanceService.accept(getBid(1, 10)));
+        verify(highestBidIndex).reload(1, List.of());
+    }
+
+    @Test
+    public void checkAccept_whenWriteTimesOut_thenHighestBidIsReloaded() {
+        ReflectionTestUtils.setField(bidAcceptanceService, "writeTimeoutMs", 50L);
+        doReturn(new CompletableFuture<Integer>()).when(bidBatchWriter).submit(any(Bid.class));
+        doNothing().when(highestBidIndex).reload(eq(1), any());
+
+        assertThrows(CompletionException.class, () -> bidAcceptanceService.accept(getBid(1, 10)));
+        verify(highestBidIndex).reload(1, List.of());
+    }
+
+    @Test
+    public void checkAccept_whenBatchIsSlowerThanTimeout_thenBidIsStillAccepted() throws Exception {
+        ReflectionTestUtils.setField(bidAcceptanceService, "writeTimeoutMs", 50L);
+        // the writer has already taken the bid into a batch, so it cannot be cancelled any more
+        CompletableFuture<Integer> write = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return false;
+            }
+        };
+        doReturn(write).when(bidBatchWriter).submit(any(Bid.class));
+        CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS).execute(() -> write.complete(7));
+
+        Bid bid = getBid(1, 10);
+        assertTrue(bidAcceptanceService.accept(bid));
+        assertEquals(7, bid.getId());
+        assertEquals(10, highestBidIndex.findByAdvertId(1).orElseThrow().value());
+    }
+
+    @Test
+    public void checkReloadHighestBid_whenBidIsStillBeingWritten_thenLowerBidIsRejected() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doReturn(List.of()).when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1));
+        ReflectionTestUtils.setField(highestBidIndex, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(bidAcceptanceService, "writeTimeoutMs", 10000L);
+        CompletableFuture<Integer> write = new CompletableFuture<>();
+        doReturn(write).when(bidBatchWriter).submit(any(Bid.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> accepted = executor.submit(() -> bidAcceptanceService.accept(getBid(1, 10)));
+        while (highestBidIndex.findByAdvertId(1).isEmpty()) {
+            Thread.sleep(1);
+        }
+
+        // the database does not know the bid yet, the reload must keep it
+        bidAcceptanceService.reloadHighestBid(1);
+        assertEquals(10, highestBidIndex.findByAdvertId(1).orElseThrow().value());
+        assertFalse(bidAcceptanceService.accept(getBid(1, 5)));
+
+        write.complete(1);
+        assertTrue(accepted.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    private static Bid getBid(Integer advertId, Integer value) {
+        Advert advert = new Advert();
+        advert.setId(advertId);
+        User user = new User();
+        user.setId(1);
+        Bid bid = new Bid();
+        bid.setValue(value);
+        bid.setAdvert(advert);
+        bid.setUser(user);
+        return bid;
+    }
+}
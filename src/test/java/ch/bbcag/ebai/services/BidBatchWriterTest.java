@@ -0,0 +1,105 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.Bid;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BidBatchWriterTest {
+
+    @Test
+    public void checkSubmit_whenWriterIsStopped_thenBidFailsInsteadOfWaiting() throws Exception {
+        BidBatchWriter bidBatchWriter = new BidBatchWriter();
+        bidBatchWriter.start();
+        bidBatchWriter.stop();
+
+        CompletableFuture<Integer> result = bidBatchWriter.submit(new Bid());
+
+        assertTrue(result.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    public void checkCancel_whenBatchIsSlow_thenQueuedBidIsNotWritten() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger writtenBids = new AtomicInteger();
+        doAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connectionWithKeys(writtenBids.incrementAndGet()));
+        }).when(jdbcTemplate).execute(any(ConnectionCallback.class));
+        BidBatchWriter bidBatchWriter = getBidBatchWriter(jdbcTemplate);
+
+        CompletableFuture<Integer> slowBid = bidBatchWriter.submit(new Bid());
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> queuedBid = bidBatchWriter.submit(new Bid());
+
+        // the first bid is already part of a batch, the second one is still waiting for the writer
+        assertFalse(slowBid.cancel(false));
+        assertTrue(queuedBid.cancel(false));
+        release.countDown();
+        CompletableFuture<Integer> nextBid = bidBatchWriter.submit(new Bid());
+
+        assertEquals(1, slowBid.get(10, TimeUnit.SECONDS));
+        assertEquals(2, nextBid.get(10, TimeUnit.SECONDS));
+        assertEquals(2, writtenBids.get());
+        bidBatchWriter.stop();
+    }
+
+    @Test
+    public void checkSubmit_whenKeysAreMissing_thenBidFailsInsteadOfGettingNoId() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connectionWithKeys()))
+                .when(jdbcTemplate).execute(any(ConnectionCallback.class));
+        BidBatchWriter bidBatchWriter = getBidBatchWriter(jdbcTemplate);
+
+        CompletableFuture<Integer> result = bidBatchWriter.submit(new Bid());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IncorrectResultSizeDataAccessException.class, e.getCause());
+        bidBatchWriter.stop();
+    }
+
+    private static BidBatchWriter getBidBatchWriter(JdbcTemplate jdbcTemplate) {
+        BidBatchWriter bidBatchWriter = new BidBatchWriter();
+        ReflectionTestUtils.setField(bidBatchWriter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(bidBatchWriter, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(bidBatchWriter, "windowMs", 0L);
+        ReflectionTestUtils.setField(bidBatchWriter, "maxBatchSize", 1);
+        bidBatchWriter.start();
+        return bidBatchWriter;
+    }
+
+    private static Connection connectionWithKeys(int... keys) throws Exception {
+        ResultSet generatedKeys = mock(ResultSet.class);
+        AtomicInteger row = new AtomicInteger();
+        when(generatedKeys.next()).thenAnswer(invocation -> row.getAndIncrement() < keys.length);
+        when(generatedKeys.getInt(1)).thenAnswer(invocation -> keys[row.get() - 1]);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.getGeneratedKeys()).thenReturn(generatedKeys);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString(), anyInt())).thenReturn(statement);
+        return connection;
+    }
+}
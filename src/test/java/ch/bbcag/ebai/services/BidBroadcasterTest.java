@@ -0,0 +1,178 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.BidSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BidBroadcasterTest {
+
+    private static final int SENDER_THREADS = 4;
+
+    private final BidBroadcaster bidBroadcaster = new BidBroadcaster();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(bidBroadcaster, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(bidBroadcaster, "bufferSize", 4);
+        ReflectionTestUtils.setField(bidBroadcaster, "sendTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(bidBroadcaster, "senderThreads", SENDER_THREADS);
+        bidBroadcaster.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bidBroadcaster.stop();
+    }
+
+    @Test
+    public void checkPublish_whenSubscribed_thenOnlyBidsOfTheAdvertAreSent() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        bidBroadcaster.subscribe(1, emitter);
+
+        bidBroadcaster.publish(new BidSnapshot(1, 1, 1, 10));
+        bidBroadcaster.publish(new BidSnapshot(2, 2, 1, 20));
+        bidBroadcaster.publish(new BidSnapshot(3, 1, 1, 30));
+
+        assertTrue(emitter.awaitPayloads(2));
+        assertEquals(List.of(10, 30), emitter.values());
+    }
+
+    @Test
+    public void checkPublish_whenSubscriberIsSlow_thenOldestBidsAreDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        bidBroadcaster.subscribe(1, emitter);
+
+        bidBroadcaster.publish(new BidSnapshot(0, 1, 1, 0));
+        assertTrue(emitter.awaitSendStarted());
+        for (int i = 1; i <= 10; i++) {
+            bidBroadcaster.publish(new BidSnapshot(i, 1, 1, i));
+        }
+        release.countDown();
+
+        assertTrue(emitter.awaitPayloads(5));
+        assertEquals(List.of(0, 7, 8, 9, 10), emitter.values());
+    }
+
+    @Test
+    public void checkPublish_whenSubscriberStopsReading_thenItIsDroppedAndOthersStillReceiveBids() throws Exception {
+        ReflectionTestUtils.setField(bidBroadcaster, "sendTimeoutMs", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingEmitter> stuckEmitters = new CopyOnWriteArrayList<>();
+        for (int i = 1; i < SENDER_THREADS; i++) {
+            RecordingEmitter stuckEmitter = new RecordingEmitter(release);
+            bidBroadcaster.subscribe(1, stuckEmitter);
+            stuckEmitters.add(stuckEmitter);
+        }
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        bidBroadcaster.subscribe(1, emitter);
+
+        bidBroadcaster.publish(new BidSnapshot(1, 1, 1, 10));
+        for (RecordingEmitter stuckEmitter : stuckEmitters) {
+            assertTrue(stuckEmitter.awaitSendStarted());
+        }
+        Thread.sleep(100);
+        bidBroadcaster.publish(new BidSnapshot(2, 1, 1, 20));
+
+        assertTrue(emitter.awaitPayloads(2));
+        release.countDown();
+        for (RecordingEmitter stuckEmitter : stuckEmitters) {
+            assertTrue(stuckEmitter.awaitCompleted());
+            assertEquals(List.of(10), stuckEmitter.values());
+        }
+    }
+
+    @Test
+    public void checkPublish_whenManySubscribersAreStuck_thenSenderThreadsAreBounded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingEmitter> stuckEmitters = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 5 * SENDER_THREADS; i++) {
+            RecordingEmitter stuckEmitter = new RecordingEmitter(release);
+            bidBroadcaster.subscribe(1, stuckEmitter);
+            stuckEmitters.add(stuckEmitter);
+        }
+
+        bidBroadcaster.publish(new BidSnapshot(1, 1, 1, 10));
+        Thread.sleep(200);
+
+        assertEquals(SENDER_THREADS, stuckEmitters.stream().filter(RecordingEmitter::sendStarted).count());
+        release.countDown();
+        for (RecordingEmitter stuckEmitter : stuckEmitters) {
+            assertTrue(stuckEmitter.awaitPayloads(1));
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final List<String> payloads = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private final CountDownLatch sendStarted = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sendStarted.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            builder.build().stream()
+                    .filter(data -> MediaType.APPLICATION_JSON.equals(data.getMediaType()))
+                    .forEach(data -> payloads.add((String) data.getData()));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            super.complete();
+        }
+
+        private boolean awaitCompleted() throws InterruptedException {
+            return completed.await(5, TimeUnit.SECONDS);
+        }
+
+        private boolean sendStarted() {
+            return sendStarted.getCount() == 0;
+        }
+
+        private boolean awaitSendStarted() throws InterruptedException {
+            return sendStarted.await(5, TimeUnit.SECONDS);
+        }
+
+        private boolean awaitPayloads(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (payloads.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return payloads.size() == count;
+        }
+
+        private List<Integer> values() throws IOException {
+            List<Integer> values = new CopyOnWriteArrayList<>();
+            for (String payload : payloads) {
+                values.add(objectMapper.readTree(payload).get("value").asInt());
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.CacheStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private EntityCache<String> cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new EntityCache<>("names", 100, Duration.ofMinutes(1), id -> {
+            loads.incrementAndGet();
+            return id > 0 ? Optional.of("name" + id) : Optional.empty();
+        });
+    }
+
+    @Test
+    public void checkFindById_whenCalledTwice_thenLoadedOnce() {
+        assertEquals(Optional.of("name1"), cache.findById(1));
+        assertEquals(Optional.of("name1"), cache.findById(1));
+
+        assertEquals(1, loads.get());
+        CacheStatistics statistics = cache.statistics();
+        assertEquals(1, statistics.hitCount());
+        assertEquals(1, statistics.missCount());
+    }
+
+    @Test
+    public void checkFindById_whenMissing_thenEmptyAndNotCached() {
+        assertTrue(cache.findById(0).isEmpty());
+        assertTrue(cache.findById(0).isEmpty());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void checkInvalidate_whenCached_thenLoadedAgain() {
+        cache.findById(1);
+        cache.invalidate(1);
+        cache.findById(1);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void checkInvalidateEmbedding_whenEmbedded_thenOnlyEmbeddingLoadedAgain() {
+        // every entry embeds the entity with ten times its id
+        EntityCache.ReverseKey<String> embedded = cache.reverseKey(name -> List.of(Integer.parseInt(name.substring(4)) * 10));
+        cache.findById(1);
+        cache.findById(2);
+        cache.invalidateEmbedding(embedded, 20);
+        cache.findById(1);
+        cache.findById(2);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void checkInvalidateEmbedding_whenEntryWasInvalidated_thenReverseKeyIsDropped() {
+        EntityCache.ReverseKey<String> embedded = cache.reverseKey(name -> List.of(7));
+        cache.findById(1);
+        cache.invalidate(1);
+        cache.invalidateEmbedding(embedded, 7);
+        cache.findById(1);
+        cache.findById(1);
+        cache.invalidateEmbedding(embedded, 7);
+        cache.findById(1);
+
+        assertEquals(3, loads.get());
+    }
+}
@@ -0,0 +1,57 @@
+package ch.bbcag.ebai.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "ebai.export.fetch-size=2")
+@ActiveProfiles("h2")
+public class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void insertRows() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM location", Integer.class) == 0) {
+            jdbcTemplate.update("INSERT INTO location (location, plz) VALUES ('Bern', 3000), ('Biel, Bienne', NULL)");
+            jdbcTemplate.update("INSERT INTO user (name, location_id) VALUES ('Mattia', 1)");
+            jdbcTemplate.update("INSERT INTO advert (name, user_id) VALUES ('Velo', 1), ('Sofa \"gross\"', 1), ('Lampe', 1)");
+        }
+    }
+
+    @Test
+    public void checkExport_whenNdjson_thenOneObjectPerLine() throws Exception {
+        assertEquals("{\"id\":1,\"name\":\"Velo\",\"userId\":1}\n"
+                        + "{\"id\":2,\"name\":\"Sofa \\\"gross\\\"\",\"userId\":1}\n"
+                        + "{\"id\":3,\"name\":\"Lampe\",\"userId\":1}\n",
+                export("adverts", ExportService.Format.NDJSON, 0));
+    }
+
+    @Test
+    public void checkExport_whenCsv_thenHeaderAndQuotedFields() throws Exception {
+        assertEquals("id,name,plz\r\n1,Bern,3000\r\n2,\"Biel, Bienne\",\r\n", export("locations", ExportService.Format.CSV, 0));
+    }
+
+    @Test
+    public void checkExport_whenSinceGiven_thenOnlyNewerRowsAreExported() throws Exception {
+        assertEquals("id,name,userId\r\n3,Lampe,1\r\n", export("adverts", ExportService.Format.CSV, 2));
+    }
+
+    private String export(String resource, ExportService.Format format, int since) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.export(resource, format, since, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
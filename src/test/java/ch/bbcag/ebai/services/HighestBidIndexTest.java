@@ -0,0 +1,74 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.BidSnapshot;
+import ch.bbcag.ebai.models.HighestBid;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class HighestBidIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private HighestBidIndex highestBidIndex;
+
+    @Test
+    public void checkLoad_whenBidsExist_thenHighestBidPerAdvertIsIndexed() {
+        doReturn(List.of(
+                new HighestBid(1, 30, 2, 3),
+                new HighestBid(1, 30, 3, 3),
+                new HighestBid(2, 5, 1, 1)
+        )).when(jdbcTemplate).query(anyString(), any(RowMapper.class));
+
+        highestBidIndex.load();
+
+        assertEquals(new HighestBid(1, 30, 2, 3), highestBidIndex.findByAdvertId(1).orElseThrow());
+        assertEquals(new HighestBid(2, 5, 1, 1), highestBidIndex.findByAdvertId(2).orElseThrow());
+    }
+
+    @Test
+    public void checkReload_whenHighestBidDeleted_thenNextHighestBidIsIndexed() {
+        highestBidIndex.add(new BidSnapshot(1, 1, 1, 10));
+        highestBidIndex.add(new BidSnapshot(2, 1, 2, 20));
+        doReturn(List.of(new HighestBid(1, 10, 1, 1))).when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1));
+
+        highestBidIndex.reload(1, List.of());
+
+        assertEquals(new HighestBid(1, 10, 1, 1), highestBidIndex.findByAdvertId(1).orElseThrow());
+    }
+
+    @Test
+    public void checkReload_whenBidIsPending_thenPendingBidKeepsTheLead() {
+        doReturn(List.of(new HighestBid(1, 10, 1, 1))).when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1));
+
+        highestBidIndex.reload(1, List.of(new BidSnapshot(null, 1, 2, 20)));
+
+        assertEquals(new HighestBid(1, 20, 2, 2), highestBidIndex.findByAdvertId(1).orElseThrow());
+    }
+
+    @Test
+    public void checkReload_whenLastBidDeleted_thenAdvertIsRemoved() {
+        highestBidIndex.add(new BidSnapshot(1, 1, 1, 10));
+        doReturn(List.of()).when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1));
+
+        highestBidIndex.reload(1, List.of());
+
+        assertTrue(highestBidIndex.findByAdvertId(1).isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.ImportError;
+import ch.bbcag.ebai.models.ImportResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "ebai.import.batch-size=2",
+        "ebai.import.max-record-bytes=200"})
+@ActiveProfiles("h2")
+public class ImportServiceTest {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private AdvertSearchIndex advertSearchIndex;
+
+    @Autowired
+    private HighestBidIndex highestBidIndex;
+
+    @Test
+    public void checkImport_whenSomeLinesAreInvalid_thenValidLinesAreImportedAndInvalidLinesReported() throws Exception {
+        ImportResult locations = importService.importLocations(ndjson("{\"name\":\"Bern\", \"plz\":3000}"));
+        ImportResult users = importService.importUsers(ndjson("{\"name\":\"Mattia\", \"location\":{\"id\":1}}"));
+        ImportResult adverts = importService.importAdverts(ndjson(
+                "{\"name\":\"Velo Rot\", \"user\":{\"id\":1}}",
+                "{\"name\":\"Kamera\", \"user\":{\"id\":1}",
+                "",
+                "{\"name\":\"\", \"user\":{\"id\":1}}",
+                "{\"name\":\"Sofa\", \"user\":{\"id\":99}}",
+                "{\"name\":\"Lampe\"}",
+                "{\"name\":\"Velo Blau\", \"user\":{\"id\":1}}"));
+
+        assertEquals(1, locations.imported());
+        assertEquals(1, users.imported());
+        assertEquals(7, adverts.lines());
+        assertEquals(2, adverts.imported());
+        assertEquals(4, adverts.failed());
+        assertEquals(List.of(2L, 4L, 5L, 6L), adverts.errors().stream().map(ImportError::line).toList());
+        assertTrue(adverts.errors().get(0).message().startsWith("Invalid JSON"));
+        assertTrue(adverts.errors().get(1).message().startsWith("name must not be blank"));
+        assertEquals("user.id is required", adverts.errors().get(3).message());
+        assertEquals(2, advertSearchIndex.search("velo").size());
+    }
+
+    @Test
+    public void checkImportBids_whenImported_thenHighestBidIsUpdated() throws Exception {
+        importService.importLocations(ndjson("{\"name\":\"Thun\", \"plz\":3600}"));
+        importService.importUsers(ndjson("{\"name\":\"Lea\", \"location\":{\"id\":1}}"));
+        importService.importAdverts(ndjson("{\"name\":\"Gitarre\", \"user\":{\"id\":1}}"));
+        Integer advertId = advertSearchIndex.search("gitarre").get(0);
+
+        ImportResult bids = importService.importBids(ndjson(
+                "{\"value\":10, \"advert\":{\"id\":" + advertId + "}, \"user\":{\"id\":1}}",
+                "{\"value\":30, \"advert\":{\"id\":" + advertId + "}, \"user\":{\"id\":1}}",
+                "{\"value\":20, \"advert\":{\"id\":" + advertId + "}, \"user\":{\"id\":1}}"));
+
+        assertEquals(3, bids.imported());
+        assertEquals(30, highestBidIndex.findByAdvertId(advertId).orElseThrow().value());
+        assertEquals(3, highestBidIndex.findByAdvertId(advertId).orElseThrow().bidCount());
+    }
+
+    @Test
+    public void checkImport_whenRecordIsTooLong_thenItIsSkippedUpToTheNextLine() throws Exception {
+        ImportResult locations = importService.importLocations(ndjson(
+                "{\"name\":\"" + "x".repeat(300) + "\", \"plz\":1000}",
+                "{\"name\":\"Biel\", \"plz\":2500}\r"));
+
+        assertEquals(2, locations.lines());
+        assertEquals(1, locations.imported());
+        assertEquals("Record is longer than 200 bytes", locations.errors().get(0).message());
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
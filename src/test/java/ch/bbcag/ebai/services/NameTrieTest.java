@@ -0,0 +1,87 @@
+package ch.bbcag.ebai.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NameTrieTest {
+
+    private NameTrie nameTrie;
+
+    @BeforeEach
+    public void setUp() {
+        nameTrie = new NameTrie();
+        nameTrie.put(1, "Kopfhörer Blau");
+        nameTrie.put(2, "Kopfkissen");
+        nameTrie.put(3, "Koffer");
+        nameTrie.put(4, "Velo");
+        nameTrie.put(5, "kopfkissen");
+    }
+
+    @Test
+    public void checkComplete_whenPrefixMatches_thenNamesAreReturnedAlphabetically() {
+        assertEquals(List.of("Koffer", "Kopfhörer Blau", "Kopfkissen"), nameTrie.complete("ko", 10));
+    }
+
+    @Test
+    public void checkComplete_whenLimitIsReached_thenFirstNamesAreReturned() {
+        assertEquals(List.of("Koffer", "Kopfhörer Blau"), nameTrie.complete("KO", 2));
+    }
+
+    @Test
+    public void checkComplete_whenNoNameMatches_thenNothingIsReturned() {
+        assertEquals(List.of(), nameTrie.complete("bike", 10));
+    }
+
+    @Test
+    public void checkPut_whenNameChanges_thenOldNameIsGone() {
+        nameTrie.put(4, "Mountainbike");
+
+        assertEquals(List.of(), nameTrie.complete("vel", 10));
+        assertEquals(List.of("Mountainbike"), nameTrie.complete("mou", 10));
+    }
+
+    @Test
+    public void checkRemove_whenNameIsStillUsedByAnotherId_thenNameStays() {
+        nameTrie.remove(2);
+        assertEquals(List.of("Kopfhörer Blau", "kopfkissen"), nameTrie.complete("kopf", 10));
+
+        nameTrie.remove(5);
+        assertEquals(List.of("Kopfhörer Blau"), nameTrie.complete("kopf", 10));
+    }
+
+    @Test
+    public void checkPut_whenFirstSpellingIsRenamed_thenRemainingSpellingIsShown() {
+        nameTrie.put(2, "Kissen");
+
+        assertEquals(List.of("kopfkissen"), nameTrie.complete("kopfk", 10));
+        assertEquals(List.of("Kissen"), nameTrie.complete("kis", 10));
+    }
+
+    @Test
+    public void checkComplete_whenPrefixEndsInsideACompressedLabel_thenNamesBelowAreReturned() {
+        assertEquals(List.of("Kopfhörer Blau"), nameTrie.complete("kopfhö", 10));
+        assertEquals(List.of(), nameTrie.complete("kopfx", 10));
+        assertEquals(List.of(), nameTrie.complete("kopfkissenbezug", 10));
+    }
+
+    @Test
+    public void checkRemove_whenSplitLabelsAreRemoved_thenRemainingNamesAreStillFound() {
+        nameTrie.put(6, "Kopf");
+        nameTrie.remove(1);
+        nameTrie.remove(6);
+
+        assertEquals(List.of("Kopfkissen"), nameTrie.complete("kop", 10));
+        assertEquals(List.of("Kopfkissen"), nameTrie.complete("kopfk", 10));
+
+        for (int id = 1; id <= 6; id++) {
+            nameTrie.remove(id);
+        }
+        assertEquals(List.of(), nameTrie.complete("", 10));
+        nameTrie.put(7, "Kopfkissen");
+        assertEquals(List.of("Kopfkissen"), nameTrie.complete("k", 10));
+    }
+}
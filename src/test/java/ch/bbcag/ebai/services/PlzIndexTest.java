@@ -0,0 +1,76 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.PlzEntry;
+import ch.bbcag.ebai.repositories.LocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class PlzIndexTest {
+
+    @Mock
+    private LocationRepository locationRepository;
+
+    @InjectMocks
+    private PlzIndex plzIndex;
+
+    @BeforeEach
+    public void setUp() {
+        doReturn(List.of(
+                new PlzEntry(2, 3000),
+                new PlzEntry(5, 3000),
+                new PlzEntry(1, 3012),
+                new PlzEntry(3, 8000)
+        )).when(locationRepository).findAllPlzEntries();
+        plzIndex.load();
+    }
+
+    @Test
+    public void checkFindIdsByPlz_whenPlzExists_thenAllLocationsWithThePlzAreReturned() {
+        assertArrayEquals(new int[]{2, 5}, plzIndex.findIdsByPlz(3000));
+        assertArrayEquals(new int[0], plzIndex.findIdsByPlz(4000));
+    }
+
+    @Test
+    public void checkFindIdsByPlzRange_whenRangeGiven_thenBoundsAreIncluded() {
+        assertArrayEquals(new int[]{2, 5, 1}, plzIndex.findIdsByPlzRange(3000, 3012));
+        assertArrayEquals(new int[]{3}, plzIndex.findIdsByPlzRange(3013, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void checkPut_whenPlzChanged_thenLocationMoves() {
+        plzIndex.put(5, 8000);
+        plzIndex.put(7, 3000);
+
+        assertArrayEquals(new int[]{2, 7}, plzIndex.findIdsByPlz(3000));
+        assertArrayEquals(new int[]{3, 5}, plzIndex.findIdsByPlz(8000));
+    }
+
+    @Test
+    public void checkRemove_whenLocationDeleted_thenNotFoundAnymore() {
+        int[] before = plzIndex.findIdsByPlz(3000);
+
+        plzIndex.remove(2);
+
+        assertArrayEquals(new int[]{5}, plzIndex.findIdsByPlz(3000));
+        assertArrayEquals(new int[]{2, 5}, before);
+    }
+
+    @Test
+    public void checkFindPageByPlzRange_whenPaging_thenIdsAreOrderedById() {
+        assertArrayEquals(new int[]{1, 2}, plzIndex.findPageByPlzRange(3000, 3012, 0, 2));
+        assertArrayEquals(new int[]{5}, plzIndex.findPageByPlzRange(3000, 3012, 2, 2));
+        assertArrayEquals(new int[0], plzIndex.findPageByPlzRange(3000, 3012, 5, 2));
+        assertArrayEquals(new int[]{2, 5}, plzIndex.findPageByPlzRange(3000, 3000, 0, 10));
+        assertArrayEquals(new int[]{1, 2, 3, 5}, plzIndex.findPageByPlzRange(0, Integer.MAX_VALUE, 0, 10));
+    }
+}
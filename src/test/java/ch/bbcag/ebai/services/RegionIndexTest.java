@@ -0,0 +1,72 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.models.ParentEntry;
+import ch.bbcag.ebai.repositories.AdvertRepository;
+import ch.bbcag.ebai.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class RegionIndexTest {
+
+    @Mock
+    private AdvertRepository advertRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private RegionIndex regionIndex;
+
+    @BeforeEach
+    public void setUp() {
+        doReturn(List.of(new ParentEntry(1, 10), new ParentEntry(2, 20), new ParentEntry(3, null))).when(userRepository).findAllLocationIds();
+        doReturn(List.of(new ParentEntry(5, 1), new ParentEntry(4, 2), new ParentEntry(6, 1), new ParentEntry(7, 3))).when(advertRepository).findAllUserIds();
+        regionIndex.load();
+    }
+
+    @Test
+    public void checkFindAdvertIds_whenLocationsGiven_thenMergedAndSorted() {
+        assertEquals(List.of(4, 5, 6), regionIndex.findAdvertIds(new int[]{10, 20}, 0, 10));
+        assertEquals(List.of(5), regionIndex.findAdvertIds(new int[]{10, 20}, 4, 1));
+    }
+
+    @Test
+    public void checkFindAdvertIds_whenPaging_thenEachPageStartsAfterTheCursor() {
+        regionIndex.putAdvert(8, 2);
+        regionIndex.putAdvert(9, 1);
+
+        assertEquals(List.of(4, 5), regionIndex.findAdvertIds(new int[]{10, 20, 10}, 0, 2));
+        assertEquals(List.of(6, 8), regionIndex.findAdvertIds(new int[]{10, 20, 10}, 5, 2));
+        assertEquals(List.of(9), regionIndex.findAdvertIds(new int[]{10, 20, 10}, 8, 2));
+        assertEquals(List.of(), regionIndex.findAdvertIds(new int[]{10, 20, 10}, 9, 2));
+    }
+
+    @Test
+    public void checkPutUser_whenUserMoves_thenAdvertsMoveAlong() {
+        regionIndex.putUser(1, 20);
+        regionIndex.putUser(3, 10);
+
+        assertEquals(List.of(4, 5, 6), regionIndex.findAdvertIds(new int[]{20}, 0, 10));
+        assertEquals(List.of(7), regionIndex.findAdvertIds(new int[]{10}, 0, 10));
+    }
+
+    @Test
+    public void checkPutAdvert_whenOwnerChanges_thenAdvertChangesLocation() {
+        regionIndex.putAdvert(5, 2);
+        regionIndex.putAdvert(8, 1);
+        regionIndex.removeAdvert(6);
+
+        assertEquals(List.of(8), regionIndex.findAdvertIds(new int[]{10}, 0, 10));
+        assertEquals(List.of(4, 5), regionIndex.findAdvertIds(new int[]{20}, 0, 10));
+    }
+}
@@ -0,0 +1,69 @@
+package ch.bbcag.ebai.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ResponseCacheTest {
+
+    private ResponseCache responseCache;
+
+    @BeforeEach
+    public void setUp() {
+        responseCache = new ResponseCache();
+        ReflectionTestUtils.setField(responseCache, "maximumBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(responseCache, "gzipMinBytes", 1024);
+        responseCache.init();
+    }
+
+    @Test
+    public void checkInvalidate_whenPathHasSeveralQueries_thenOnlyThatPathIsDropped() {
+        ResponseCache.Key bern = new ResponseCache.Key("/locations", "location=Bern");
+        ResponseCache.Key all = new ResponseCache.Key("/locations", "");
+        ResponseCache.Key advert = new ResponseCache.Key("/adverts/1", "");
+        put(bern);
+        put(all);
+        put(advert);
+
+        responseCache.invalidate("/locations");
+
+        assertNull(responseCache.get(bern));
+        assertNull(responseCache.get(all));
+        assertNotNull(responseCache.get(advert));
+    }
+
+    @Test
+    public void checkPut_whenPathWasInvalidatedWhileRendering_thenResponseIsNotCached() {
+        ResponseCache.Key key = new ResponseCache.Key("/adverts/1", "");
+        long renderedAt = responseCache.generation(key.path());
+        responseCache.invalidate("/adverts/1");
+
+        responseCache.put(key, "application/json", body(), null, renderedAt);
+
+        assertNull(responseCache.get(key));
+    }
+
+    @Test
+    public void checkPut_whenOtherPathWasInvalidatedWhileRendering_thenResponseIsCached() {
+        ResponseCache.Key key = new ResponseCache.Key("/adverts/1", "");
+        long renderedAt = responseCache.generation(key.path());
+        responseCache.invalidate("/locations");
+
+        responseCache.put(key, "application/json", body(), null, renderedAt);
+
+        assertNotNull(responseCache.get(key));
+    }
+
+    private void put(ResponseCache.Key key) {
+        responseCache.put(key, "application/json", body(), null, responseCache.generation(key.path()));
+    }
+
+    private static byte[] body() {
+        return "[]".getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package ch.bbcag.ebai.services;
+
+import ch.bbcag.ebai.config.QueryStatistics;
+import ch.bbcag.ebai.models.CacheStatistics;
+import ch.bbcag.ebai.models.Location;
+import ch.bbcag.ebai.repositories.LocationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+public class SecondLevelCachesTest {
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private SecondLevelCaches secondLevelCaches;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void checkFind_whenLoadedBefore_thenNoStatementIsExecuted() {
+        Location location = new Location();
+        location.setName("Bern");
+        location.setPlz(3000);
+        Integer id = locationRepository.save(location).getId();
+        locationRepository.findById(id);
+        locationRepository.findAllSummaries();
+
+        QueryStatistics statistics = QueryStatistics.start();
+        try {
+            assertEquals("Bern", locationRepository.findById(id).orElseThrow().getName());
+            assertTrue(locationRepository.findAllSummaries().stream().anyMatch(summary -> summary.id().equals(id)));
+            assertEquals(0, statistics.statementCount());
+        } finally {
+            QueryStatistics.stop();
+        }
+        CacheStatistics locations = secondLevelCaches.statistics().stream()
+                .filter(cache -> cache.name().equals("second-level:locations")).findFirst().orElseThrow();
+        assertTrue(locations.hitCount() > 0);
+    }
+
+    @Test
+    public void checkImportUsers_whenUsersOfLocationAreCached_thenCollectionIsEvicted() throws Exception {
+        Location location = new Location();
+        location.setName("Thun");
+        location.setPlz(3600);
+        Integer id = locationRepository.save(location).getId();
+        assertEquals(0, countUsers(id));
+
+        importService.importUsers(new ByteArrayInputStream(("{\"name\":\"Mattia\", \"location\":{\"id\":" + id + "}}\n").getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, countUsers(id));
+    }
+
+    private int countUsers(Integer locationId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> locationRepository.findById(locationId).orElseThrow().getUsers().size());
+    }
+}
@@ -0,0 +1,40 @@
+package ch.bbcag.ebai.utils;
+
+import ch.bbcag.ebai.config.QueryStatistics;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryBudget {
+
+    private static final Pattern STATEMENT_COUNT = Pattern.compile("db;[^,]*desc=\"(\\d+) statements\"");
+
+    // checks the Server-Timing header written by the QueryStatisticsFilter
+    public static ResultMatcher statementsAtMost(int maximum) {
+        return result -> {
+            String serverTiming = result.getResponse().getHeader("Server-Timing");
+            assertNotNull(serverTiming, "Response has no Server-Timing header");
+            Matcher matcher = STATEMENT_COUNT.matcher(serverTiming);
+            assertTrue(matcher.find(), "Server-Timing header has no statement count: " + serverTiming);
+            int statementCount = Integer.parseInt(matcher.group(1));
+            assertTrue(statementCount <= maximum, "Expected at most " + maximum + " statements but " + statementCount + " were executed");
+        };
+    }
+
+    // for code that is called directly instead of through MockMvc
+    public static <T> T statementsAtMost(int maximum, Supplier<T> call) {
+        QueryStatistics statistics = QueryStatistics.start();
+        try {
+            T result = call.get();
+            assertTrue(statistics.statementCount() <= maximum, "Expected at most " + maximum + " statements but " + statistics.statementCount() + " were executed");
+            return result;
+        } finally {
+            QueryStatistics.stop();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ch.bbcag.ebai.utils;
+
+import ch.bbcag.ebai.config.SecondLevelCacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SecondLevelCacheConfig.class)
+public class SyntheticDataGeneratorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void checkGenerate_whenVolumesGiven_thenRowsAreInsertedWithHotAdverts() {
+        new SyntheticDataGenerator(42).locations(10).users(100).adverts(200).bids(5_000).batchSize(700).generate(jdbcTemplate);
+
+        assertEquals(10, count("location"));
+        assertEquals(100, count("user"));
+        assertEquals(200, count("advert"));
+        assertEquals(5_000, count("bid"));
+        List<Integer> bidsPerAdvert = jdbcTemplate.queryForList("SELECT COUNT(*) FROM bid GROUP BY advert_id ORDER BY COUNT(*) DESC", Integer.class);
+        assertTrue(bidsPerAdvert.get(0) > 20 * 25, "the hottest advert should get far more than the average of 25 bids");
+        // every bid raised the highest bid of its advert
+        assertEquals(0, count("bid b WHERE EXISTS (SELECT 1 FROM bid o WHERE o.advert_id = b.advert_id AND o.id > b.id AND o.value <= b.value)"));
+    }
+
+    @Test
+    public void checkNames_whenSameSeed_thenSameNames() {
+        SyntheticDataGenerator first = new SyntheticDataGenerator(7);
+        SyntheticDataGenerator second = new SyntheticDataGenerator(7);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.advertName(), second.advertName());
+            assertEquals(first.userName(), second.userName());
+        }
+    }
+
+    @Test
+    public void checkZipf_whenSampled_thenLowRanksAreMostFrequent() {
+        ZipfDistribution distribution = new ZipfDistribution(1_000_000, 1.0, new Random(1));
+        int[] counts = new int[4];
+        for (int i = 0; i < 100_000; i++) {
+            int rank = distribution.sample();
+            assertTrue(rank >= 1 && rank <= 1_000_000);
+            if (rank <= 3) {
+                counts[rank]++;
+            }
+        }
+        assertTrue(counts[1] > counts[2] && counts[2] > counts[3]);
+        // with an exponent of 1 rank 1 is drawn about twice as often as rank 2
+        assertEquals(2.0, counts[1] / (double) counts[2], 0.3);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,43 @@
+package ch.bbcag.ebai.utils;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// creates rows through the endpoints and returns their ids, the tests of one context share its database so no id is fixed
+public class TestRecords {
+
+    private final MockMvc mockMvc;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestRecords(MockMvc mockMvc, JdbcTemplate jdbcTemplate) {
+        this.mockMvc = mockMvc;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int location(String name, int plz) throws Exception {
+        return create("/locations", "location", "{\"id\":\"0\", \"name\":\"" + name + "\", \"plz\":\"" + plz + "\"}");
+    }
+
+    public int user(String name, int locationId) throws Exception {
+        return create("/users", "user", "{\"id\":\"0\", \"name\":\"" + name + "\", \"location\":{\"id\":\"" + locationId + "\"}}");
+    }
+
+    public int advert(String name, int userId) throws Exception {
+        return create("/adverts", "advert", "{\"id\":\"0\", \"name\":\"" + name + "\", \"user\":{\"id\":\"" + userId + "\"}}");
+    }
+
+    public int bid(int value, int advertId, int userId) throws Exception {
+        return create("/bids", "bid", "{\"id\":0, \"value\":" + value + ", \"advert\":{\"id\":" + advertId + "}, \"user\":{\"id\":" + userId + "}}");
+    }
+
+    private int create(String path, String table, String content) throws Exception {
+        mockMvc.perform(post(path)
+                        .contentType("application/json")
+                        .content(content))
+                .andExpect(status().isCreated());
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,208 @@
+package ch.bbcag.ebai.utils;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// production-like volumes for benchmarks and load tests, the same seed always yields the same rows.
+// Rows are written into empty tables in batches and get their ids from the database, starting at 1.
+public class SyntheticDataGenerator {
+
+    private static final String[] TOWNS = {"Zuerich", "Bern", "Basel", "Lausanne", "Genf", "Luzern", "St. Gallen", "Winterthur", "Lugano", "Biel", "Thun", "Chur"};
+    private static final int[] TOWN_PLZ = {8000, 3000, 4000, 1000, 1200, 6000, 9000, 8400, 6900, 2500, 3600, 7000};
+    private static final String[] FIRST_NAMES = {"Luca", "Noah", "Mia", "Emma", "Leon", "Lea", "Elias", "Lina", "Nino", "Sara", "David", "Laura", "Jan", "Nina", "Tim", "Anna"};
+    private static final String[] LAST_NAMES = {"Mueller", "Meier", "Schmid", "Keller", "Weber", "Huber", "Schneider", "Meyer", "Steiner", "Fischer", "Gerber", "Brunner"};
+    private static final String[] NOUNS = {"Velo", "Kamera", "Laptop", "Sofa", "Jacke", "Uhr", "Lampe", "Tisch", "Stuhl", "Kopfhoerer", "Handy", "Ski", "Gitarre", "Konsole", "Buch", "Teppich"};
+    private static final String[] COLORS = {"Schwarz", "Weiss", "Blau", "Rot", "Grau", "Gruen", "Braun", "Gelb"};
+    private static final String[] CONDITIONS = {"gebraucht", "neu", "wie neu", "defekt", "vintage"};
+
+    private final Random random;
+
+    private final Map<String[], ZipfDistribution> wordDistributions = new IdentityHashMap<>();
+
+    private int locations = 100;
+
+    private int users = 1_000;
+
+    private int adverts = 10_000;
+
+    private int bids = 100_000;
+
+    private double bidSkew = 1.0;
+
+    private double nameSkew = 0.8;
+
+    private int batchSize = 5_000;
+
+    public SyntheticDataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public SyntheticDataGenerator locations(int locations) {
+        this.locations = locations;
+        return this;
+    }
+
+    public SyntheticDataGenerator users(int users) {
+        this.users = users;
+        return this;
+    }
+
+    public SyntheticDataGenerator adverts(int adverts) {
+        this.adverts = adverts;
+        return this;
+    }
+
+    public SyntheticDataGenerator bids(int bids) {
+        this.bids = bids;
+        return this;
+    }
+
+    // zipf exponent of the bids per advert and of the adverts per seller, higher means fewer and hotter adverts
+    public SyntheticDataGenerator bidSkew(double bidSkew) {
+        this.bidSkew = bidSkew;
+        return this;
+    }
+
+    // zipf exponent of the words in names, so some search terms match far more rows than others
+    public SyntheticDataGenerator nameSkew(double nameSkew) {
+        this.nameSkew = nameSkew;
+        wordDistributions.clear();
+        return this;
+    }
+
+    public SyntheticDataGenerator batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public void generate(JdbcTemplate jdbcTemplate) {
+        if (locations < 1 || (users < 1 && adverts > 0) || (adverts < 1 && bids > 0)) {
+            throw new IllegalArgumentException("Users need locations, adverts need users and bids need adverts");
+        }
+        insertLocations(jdbcTemplate);
+        insertUsers(jdbcTemplate);
+        insertAdverts(jdbcTemplate);
+        insertBids(jdbcTemplate);
+    }
+
+    public String advertName() {
+        return word(NOUNS) + " " + word(COLORS) + " " + word(CONDITIONS);
+    }
+
+    public String userName() {
+        return word(FIRST_NAMES) + " " + word(LAST_NAMES);
+    }
+
+    // the bigger towns get the most locations, each location has its own plz within the town's range
+    private void insertLocations(JdbcTemplate jdbcTemplate) {
+        ZipfDistribution towns = new ZipfDistribution(TOWNS.length, nameSkew, random);
+        int[] locationsPerTown = new int[TOWNS.length];
+        Batch batch = new Batch(jdbcTemplate, "INSERT INTO location (location, plz) VALUES (?, ?)");
+        for (int i = 0; i < locations; i++) {
+            int town = towns.sample() - 1;
+            batch.add(TOWNS[town], TOWN_PLZ[town] + locationsPerTown[town]++);
+        }
+        batch.flush();
+    }
+
+    private void insertUsers(JdbcTemplate jdbcTemplate) {
+        ZipfDistribution homes = new ZipfDistribution(locations, nameSkew, random);
+        Batch batch = new Batch(jdbcTemplate, "INSERT INTO user (name, location_id) VALUES (?, ?)");
+        for (int i = 0; i < users; i++) {
+            batch.add(userName(), homes.sample());
+        }
+        batch.flush();
+    }
+
+    // a few power sellers own most of the adverts
+    private void insertAdverts(JdbcTemplate jdbcTemplate) {
+        if (adverts < 1) {
+            return;
+        }
+        Ranking sellers = new Ranking(users, bidSkew);
+        Batch batch = new Batch(jdbcTemplate, "INSERT INTO advert (name, user_id) VALUES (?, ?)");
+        for (int i = 0; i < adverts; i++) {
+            batch.add(advertName(), sellers.sample());
+        }
+        batch.flush();
+    }
+
+    // hot adverts draw most of the bids, every bid raises the advert's highest bid
+    private void insertBids(JdbcTemplate jdbcTemplate) {
+        if (bids < 1) {
+            return;
+        }
+        Ranking hotAdverts = new Ranking(adverts, bidSkew);
+        int[] highestBids = new int[adverts + 1];
+        Batch batch = new Batch(jdbcTemplate, "INSERT INTO bid (value, advert_id, user_id) VALUES (?, ?, ?)");
+        for (int i = 0; i < bids; i++) {
+            int advert = hotAdverts.sample();
+            highestBids[advert] += highestBids[advert] == 0 ? 5 + random.nextInt(100) : 1 + random.nextInt(20);
+            batch.add(highestBids[advert], advert, 1 + random.nextInt(users));
+        }
+        batch.flush();
+    }
+
+    private String word(String[] words) {
+        return words[wordDistributions.computeIfAbsent(words, key -> new ZipfDistribution(key.length, nameSkew, random)).sample() - 1];
+    }
+
+    // zipf ranks spread over the ids 1..n by an affine bijection, so the hot rows are not simply the first ones
+    private class Ranking {
+
+        private final ZipfDistribution distribution;
+        private final int size;
+        private final long multiplier;
+        private final long offset;
+
+        private Ranking(int size, double exponent) {
+            this.distribution = new ZipfDistribution(size, exponent, random);
+            this.size = size;
+            long candidate = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+            while (gcd(candidate, size) != 1) {
+                candidate++;
+            }
+            this.multiplier = candidate;
+            this.offset = random.nextInt(size);
+        }
+
+        private int sample() {
+            return (int) (((distribution.sample() - 1) * multiplier + offset) % size) + 1;
+        }
+
+        private static long gcd(long a, long b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
+
+    private class Batch {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>(batchSize);
+
+        private Batch(JdbcTemplate jdbcTemplate, String sql) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.sql = sql;
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
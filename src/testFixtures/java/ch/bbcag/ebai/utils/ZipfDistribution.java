@@ -0,0 +1,66 @@
+package ch.bbcag.ebai.utils;
+
+import java.util.Random;
+
+// ranks 1..n where rank k is drawn with a weight of 1/k^exponent, sampled by rejection-inversion
+// (Hörmann and Derflinger) so no table of n weights is needed even for millions of elements
+public class ZipfDistribution {
+
+    private final int numberOfElements;
+
+    private final double exponent;
+
+    private final Random random;
+
+    private final double hIntegralX1;
+
+    private final double hIntegralNumberOfElements;
+
+    private final double s;
+
+    public ZipfDistribution(int numberOfElements, double exponent, Random random) {
+        if (numberOfElements < 1 || exponent <= 0) {
+            throw new IllegalArgumentException("Zipf needs at least one element and a positive exponent");
+        }
+        this.numberOfElements = numberOfElements;
+        this.exponent = exponent;
+        this.random = random;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralNumberOfElements = hIntegral(numberOfElements + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    public int sample() {
+        while (true) {
+            double u = hIntegralNumberOfElements + random.nextDouble() * (hIntegralX1 - hIntegralNumberOfElements);
+            double x = hIntegralInverse(u);
+            int k = (int) Math.max(1, Math.min(numberOfElements, x + 0.5));
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1.0, x * (1.0 - exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x and (exp(x) - 1) / x, with series expansions where they would lose precision
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+    }
+}